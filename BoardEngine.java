@@ -0,0 +1,86 @@
+// BoardEngine.java
+import java.util.*;
+
+// Tic-Tac-Toe and Gomoku, which only differ in board size and line length
+class BoardEngine implements GameEngine {
+    private static final char[] SYMBOLS = TTTBoard.SYMBOLS;
+
+    private final String gameType;
+    private final TTTBoard board;
+    private int currentPlayer = 0;
+
+    BoardEngine(String gameType) {
+        this.gameType = gameType;
+        this.board = TTTBoard.forGame(gameType);
+    }
+
+    public void startRound(GameLogic game) {
+        board.clear();
+        currentPlayer = 0;
+        for (int i = 0; i < 2; i++) {
+            game.player(i).sendMessage("GAME_START:" + gameType + ":You are " + SYMBOLS[i] +
+                                       (i == currentPlayer ? " - Your turn!" : " - Opponent's turn"));
+        }
+        game.broadcastScores();
+        updateBoard(game);
+    }
+
+    public void handleMove(GameLogic game, int seat, String move) {
+        ClientHandler sender = game.player(seat);
+        if (seat != currentPlayer) {
+            sender.sendMessage("ERROR:Not your turn!");
+            return;
+        }
+
+        try {
+            int position = Integer.parseInt(move);
+            if (position < 0 || position >= board.getCellCount() || !board.isEmpty(position)) {
+                sender.sendMessage("ERROR:Invalid move!");
+                return;
+            }
+
+            board.place(position, seat);
+
+            if (board.isWinningMove(position, seat)) {
+                game.finishRound("WINNER:" + sender.getPlayerName() + " wins!", seat);
+            } else if (board.isFull()) {
+                game.finishRound("DRAW:Game ended in a draw!", -1);
+            } else {
+                currentPlayer = 1 - currentPlayer;
+                updateBoard(game);
+            }
+        } catch (NumberFormatException e) {
+            sender.sendMessage("ERROR:Enter a number (0-" + (board.getCellCount() - 1) + ")!");
+        }
+    }
+
+    public void appendRoundState(GameLogic game, int seat, List<String> lines) {
+        lines.add("GAME_START:" + gameType + ":You are " + SYMBOLS[seat] +
+                  (seat == currentPlayer ? " - Your turn!" : " - Opponent's turn"));
+        lines.add(boardLine());
+        lines.add(statusLine(seat));
+    }
+
+    @Override
+    public void sendStateTo(ClientHandler spectator) {
+        spectator.sendMessage(boardLine());
+    }
+
+    private String boardLine() {
+        StringBuilder boardState = new StringBuilder(6 + board.getCellCount()).append("BOARD:");
+        board.appendTo(boardState);
+        return boardState.toString();
+    }
+
+    private void updateBoard(GameLogic game) {
+        game.broadcast(boardLine());
+
+        for (int i = 0; i < 2; i++) {
+            game.player(i).sendMessage(statusLine(i));
+        }
+    }
+
+    private String statusLine(int seat) {
+        return seat == currentPlayer ? "TURN:Your turn (" + SYMBOLS[seat] + ")" : "WAIT:Opponent's turn (" + SYMBOLS[seat] + ")";
+    }
+}
@@ -0,0 +1,354 @@
+// BoardSearch.java
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Iterative-deepening negamax with alpha-beta for k-in-a-row boards. After
+// the first root move is searched, its siblings are searched in parallel
+// against that bound, and every worker shares one transposition table per
+// board shape. Stops at the deadline and plays the deepest finished answer.
+class BoardSearch {
+    static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    static final int WIN = 1_000_000;
+    private static final int INFINITY = WIN + 1;
+    private static final int[] LINE_SCORES = {0, 1, 12, 150, 2_000, 25_000, 300_000};
+
+    private static final Map<Integer, TranspositionTable> TABLES = new ConcurrentHashMap<>();
+    private static final Map<Integer, long[][]> ZOBRIST = new ConcurrentHashMap<>();
+    private static final Map<Integer, int[][]> WINDOWS = new ConcurrentHashMap<>();
+    private static final LongAdder NODES = new LongAdder();
+
+    private final int size;
+    private final int winLength;
+    private final int cells;
+    private final long deadline;
+    // Nodes between clock reads; big-board nodes are far more expensive
+    private final int clockMask;
+    private final long[][] zobrist;
+    private final int[][] windows;
+    private final TranspositionTable table;
+    private volatile boolean aborted = false;
+
+    private BoardSearch(TTTBoard board, long budgetMillis) {
+        this.size = board.getSize();
+        this.winLength = board.getWinLength();
+        this.cells = board.getCellCount();
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.clockMask = cells <= 64 ? 1023 : 15;
+
+        int shape = size * 1000 + winLength;
+        this.zobrist = ZOBRIST.computeIfAbsent(shape, key -> {
+            SplittableRandom random = new SplittableRandom(key);
+            long[][] keys = new long[2][cells];
+            for (int i = 0; i < cells; i++) {
+                keys[0][i] = random.nextLong();
+                keys[1][i] = random.nextLong();
+            }
+            return keys;
+        });
+        this.windows = WINDOWS.computeIfAbsent(shape, key -> buildWindows(size, winLength));
+        this.table = TABLES.computeIfAbsent(shape, key -> new TranspositionTable(cells <= 64 ? 16 : 20));
+    }
+
+    static long getNodeCount() {
+        return NODES.sum();
+    }
+
+    // Best cell for player to move on board within roughly budgetMillis
+    static int findMove(TTTBoard board, int player, long budgetMillis) {
+        BoardSearch search = new BoardSearch(board, budgetMillis);
+        if (ForkJoinTask.getPool() == POOL) {
+            return search.search(board, player);
+        }
+        return POOL.invoke(ForkJoinTask.adapt(() -> search.search(board, player)));
+    }
+
+    private int search(TTTBoard board, int player) {
+        long hash = 0;
+        for (int i = 0; i < cells; i++) {
+            int owner = board.ownerOf(i);
+            if (owner >= 0) hash ^= zobrist[owner][i];
+        }
+
+        int[] moves = candidates(board);
+        if (moves.length == 0) return -1;
+        int bestMove = moves[0];
+        int maxDepth = cells - board.getStoneCount();
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // Previous best first, it is the likeliest to stay best
+            for (int i = 0; i < moves.length; i++) {
+                if (moves[i] == bestMove) {
+                    moves[i] = moves[0];
+                    moves[0] = bestMove;
+                    break;
+                }
+            }
+
+            Worker first = new Worker(board.copy(), hash);
+            int alpha = -first.scoreMove(moves[0], player, depth, -INFINITY, INFINITY);
+            int iterationBest = moves[0];
+
+            List<RootTask> siblings = new ArrayList<>(moves.length - 1);
+            for (int i = 1; i < moves.length; i++) {
+                siblings.add(new RootTask(board, hash, moves[i], player, depth, alpha));
+            }
+            ForkJoinTask.invokeAll(siblings);
+            for (RootTask sibling : siblings) {
+                int score = sibling.join();
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = sibling.move;
+                }
+            }
+
+            if (aborted) break;
+            bestMove = iterationBest;
+            if (alpha >= WIN - cells) break; // forced win found, no need to look deeper
+        }
+        return bestMove;
+    }
+
+    private class RootTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final TTTBoard board;
+        private final long hash;
+        private final int move;
+        private final int player;
+        private final int depth;
+        private final int alpha;
+
+        RootTask(TTTBoard board, long hash, int move, int player, int depth, int alpha) {
+            this.board = board.copy();
+            this.hash = hash;
+            this.move = move;
+            this.player = player;
+            this.depth = depth;
+            this.alpha = alpha;
+        }
+
+        protected Integer compute() {
+            return -new Worker(board, hash).scoreMove(move, player, depth, -INFINITY, -alpha);
+        }
+    }
+
+    // One thread's view of the search: its own board copy and node count
+    private class Worker {
+        private final TTTBoard board;
+        private long hash;
+        private long nodes = 0;
+
+        Worker(TTTBoard board, long hash) {
+            this.board = board;
+            this.hash = hash;
+        }
+
+        // Score of the position after player plays move, from the opponent's side
+        int scoreMove(int move, int player, int depth, int alpha, int beta) {
+            board.place(move, player);
+            hash ^= zobrist[player][move];
+            int score = negamax(1 - player, move, depth - 1, alpha, beta, 1);
+            hash ^= zobrist[player][move];
+            board.remove(move, player);
+            NODES.add(nodes);
+            nodes = 0;
+            return score;
+        }
+
+        private int negamax(int player, int lastMove, int depth, int alpha, int beta, int ply) {
+            if ((++nodes & clockMask) == 0 && System.nanoTime() > deadline) {
+                aborted = true;
+            }
+            if (aborted) return 0;
+            if (board.isWinningMove(lastMove, 1 - player)) return -WIN + ply;
+            if (board.isFull()) return 0;
+            if (depth <= 0) return evaluate(board, player);
+
+            int alphaOriginal = alpha;
+            int hintMove = -1;
+            long entry = table.probe(hash);
+            if (entry != TranspositionTable.MISS) {
+                hintMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int stored = fromTable(TranspositionTable.score(entry), ply);
+                    int flag = TranspositionTable.flag(entry);
+                    if (flag == TranspositionTable.EXACT) return stored;
+                    if (flag == TranspositionTable.LOWER && stored >= beta) return stored;
+                    if (flag == TranspositionTable.UPPER && stored <= alpha) return stored;
+                }
+            }
+
+            int[] moves = candidates(board);
+            if (moves.length == 0) return evaluate(board, player);
+            if (hintMove >= 0) {
+                for (int i = 0; i < moves.length; i++) {
+                    if (moves[i] == hintMove) {
+                        moves[i] = moves[0];
+                        moves[0] = hintMove;
+                        break;
+                    }
+                }
+            }
+
+            int best = -INFINITY;
+            int bestMove = moves[0];
+            for (int move : moves) {
+                board.place(move, player);
+                hash ^= zobrist[player][move];
+                int score = -negamax(1 - player, move, depth - 1, -beta, -alpha, ply + 1);
+                hash ^= zobrist[player][move];
+                board.remove(move, player);
+
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                }
+                if (best > alpha) alpha = best;
+                if (alpha >= beta) break;
+            }
+            if (aborted) return 0;
+
+            int flag = best <= alphaOriginal ? TranspositionTable.UPPER
+                     : best >= beta ? TranspositionTable.LOWER
+                     : TranspositionTable.EXACT;
+            table.store(hash, toTable(best, ply), depth, flag, bestMove);
+            return best;
+        }
+    }
+
+    // Win scores count plies from the root; the table keeps them relative to the node
+    private int toTable(int score, int ply) {
+        if (score > WIN - cells) return score + ply;
+        if (score < -WIN + cells) return score - ply;
+        return score;
+    }
+
+    private int fromTable(int score, int ply) {
+        if (score > WIN - cells) return score - ply;
+        if (score < -WIN + cells) return score + ply;
+        return score;
+    }
+
+    // Small boards try every empty cell; big ones only cells next to a stone
+    private int[] candidates(TTTBoard board) {
+        int[] moves = new int[cells];
+        int count = 0;
+        if (cells <= 64) {
+            for (int i = 0; i < cells; i++) {
+                if (board.isEmpty(i)) moves[count++] = i;
+            }
+            return Arrays.copyOf(moves, count);
+        }
+
+        if (board.getStoneCount() == 0) {
+            return new int[] {(size / 2) * size + size / 2};
+        }
+        for (int i = 0; i < cells; i++) {
+            if (board.isEmpty(i) && hasNeighbour(board, i)) moves[count++] = i;
+        }
+        return Arrays.copyOf(moves, count);
+    }
+
+    private boolean hasNeighbour(TTTBoard board, int position) {
+        int row = position / size;
+        int col = position % size;
+        for (int r = Math.max(0, row - 1); r <= Math.min(size - 1, row + 1); r++) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(size - 1, col + 1); c++) {
+                if (!board.isEmpty(r * size + c)) return true;
+            }
+        }
+        return false;
+    }
+
+    // Sum over every k-cell window that only one side has stones in
+    private int evaluate(TTTBoard board, int player) {
+        int score = 0;
+        for (int[] window : windows) {
+            int mine = 0;
+            int theirs = 0;
+            for (int cell : window) {
+                int owner = board.ownerOf(cell);
+                if (owner == player) mine++;
+                else if (owner >= 0) theirs++;
+            }
+            if (theirs == 0) score += lineScore(mine);
+            else if (mine == 0) score -= lineScore(theirs);
+        }
+        return score;
+    }
+
+    private static int lineScore(int stones) {
+        return LINE_SCORES[Math.min(stones, LINE_SCORES.length - 1)];
+    }
+
+    private static int[][] buildWindows(int size, int winLength) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        List<int[]> windows = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] d : directions) {
+                    int endRow = row + d[0] * (winLength - 1);
+                    int endCol = col + d[1] * (winLength - 1);
+                    if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) continue;
+                    int[] window = new int[winLength];
+                    for (int step = 0; step < winLength; step++) {
+                        window[step] = (row + d[0] * step) * size + col + d[1] * step;
+                    }
+                    windows.add(window);
+                }
+            }
+        }
+        return windows.toArray(new int[0][]);
+    }
+}
+
+// Fixed-size, lock-free transposition table. Each slot holds the packed
+// entry and the position key XOR the entry, so a slot torn by two threads
+// writing at once simply fails the key check instead of returning garbage.
+class TranspositionTable {
+    static final long MISS = Long.MIN_VALUE;
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    TranspositionTable(int sizeBits) {
+        keys = new AtomicLongArray(1 << sizeBits);
+        entries = new AtomicLongArray(1 << sizeBits);
+        mask = (1 << sizeBits) - 1;
+    }
+
+    long probe(long hash) {
+        int slot = (int) hash & mask;
+        long entry = entries.getPlain(slot);
+        return (keys.getPlain(slot) ^ entry) == hash && entry != 0 ? entry : MISS;
+    }
+
+    void store(long hash, int score, int depth, int flag, int move) {
+        // Layout: score in the high 32 bits, then flag, depth and move + 1
+        long entry = ((long) score << 32) | ((long) flag << 24) | ((long) Math.min(depth, 255) << 16) | (move + 1);
+        int slot = (int) hash & mask;
+        entries.setPlain(slot, entry);
+        keys.setPlain(slot, hash ^ entry);
+    }
+
+    static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int flag(long entry) {
+        return (int) (entry >>> 24) & 0xFF;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+}
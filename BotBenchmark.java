@@ -0,0 +1,62 @@
+// BotBenchmark.java
+import java.util.*;
+import java.util.concurrent.*;
+
+// Plays many bot-vs-bot board games at once and reports search speed
+// (nodes/second) and move latency percentiles.
+//   java BotBenchmark [TTT|GOMOKU] [concurrent games] [games each] [move budget ms]
+public class BotBenchmark {
+    public static void main(String[] args) throws Exception {
+        String gameType = args.length > 0 ? args[0].toUpperCase() : "TTT";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int gamesEach = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long budgetMillis = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+        System.out.println("🤖 " + concurrency + " concurrent " + gameType + " games x " + gamesEach
+                           + ", " + budgetMillis + " ms per move");
+
+        ExecutorService games = Executors.newFixedThreadPool(concurrency);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        long nodesBefore = BoardSearch.getNodeCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(games.submit(() -> playGames(gameType, gamesEach, budgetMillis)));
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> result : results) {
+            latencies.addAll(result.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        games.shutdown();
+
+        long nodes = BoardSearch.getNodeCount() - nodesBefore;
+        Collections.sort(latencies);
+        System.out.printf("📊 %d moves, %d nodes, %.0f nodes/s%n",
+                          latencies.size(), nodes, nodes / (elapsed / 1e9));
+        System.out.printf("⏱️ move latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                          percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                          latencies.get(latencies.size() - 1) / 1e6);
+    }
+
+    private static List<Long> playGames(String gameType, int games, long budgetMillis) {
+        List<Long> latencies = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            TTTBoard board = TTTBoard.forGame(gameType);
+            int player = 0;
+            while (true) {
+                long moveStart = System.nanoTime();
+                int move = BoardSearch.findMove(board, player, budgetMillis);
+                latencies.add(System.nanoTime() - moveStart);
+                board.place(move, player);
+                if (board.isWinningMove(move, player) || board.isFull()) break;
+                player = 1 - player;
+            }
+        }
+        return latencies;
+    }
+
+    private static long percentile(List<Long> sorted, double fraction) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) (sorted.size() * fraction)));
+    }
+}
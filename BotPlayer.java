@@ -0,0 +1,82 @@
+// BotPlayer.java
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// A server-side opponent that takes a seat like any other ClientHandler.
+// It reads the same messages a client would and answers through
+// GameSession.processMessage, so GameLogic cannot tell it from a person.
+// Board moves are searched off the session thread on a shared ForkJoinPool.
+class BotPlayer extends ClientHandler {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    // Pause before quick answers so a human can follow along
+    private static final long THINK_MILLIS = 400;
+
+    private final long moveBudgetMillis;
+    private final String name;
+
+    // Only touched from the session's mailbox
+    private String gameType;
+    private TTTBoard board;
+    private int seat;
+
+    public BotPlayer(long moveBudgetMillis) {
+        this.moveBudgetMillis = moveBudgetMillis;
+        this.name = "🤖 Bot " + NEXT_ID.getAndIncrement();
+        setPlayerName(name);
+    }
+
+    @Override
+    public void send(OutboundMessage outbound) {
+        String message = outbound.getText();
+        if (message.startsWith("GAME_START:")) {
+            String[] parts = message.split(":", 3);
+            gameType = parts[1];
+            board = TTTBoard.forGame(gameType);
+            seat = parts[2].startsWith("You are O") ? 1 : 0;
+            if (gameType.equals("RPS")) {
+                String[] choices = {"R", "P", "S"};
+                later(choices[ThreadLocalRandom.current().nextInt(3)]);
+            } else if (gameType.equals("DICE") && parts[2].startsWith(name + "'s turn")) {
+                later("ROLL");
+            }
+        } else if (message.startsWith("BOARD:") && board != null) {
+            board.clear();
+            for (int i = 0; i < board.getCellCount(); i++) {
+                char c = message.charAt("BOARD:".length() + i);
+                if (c != TTTBoard.EMPTY) {
+                    board.place(i, c == TTTBoard.SYMBOLS[0] ? 0 : 1);
+                }
+            }
+        } else if (message.startsWith("TURN:")) {
+            if (board != null) {
+                TTTBoard snapshot = board.copy();
+                BoardSearch.POOL.execute(() ->
+                    play(String.valueOf(BoardSearch.findMove(snapshot, seat, moveBudgetMillis))));
+            } else if ("DICE".equals(gameType) && message.startsWith("TURN:" + name + "'s turn")) {
+                later("ROLL");
+            }
+        } else if (message.startsWith("GAME_OVER:")) {
+            later("YES");
+        } else if (message.startsWith("SESSION_END:")) {
+            gameType = null;
+            board = null;
+        } else if (message.startsWith("OPPONENT_LEFT:")) {
+            // Nobody left to entertain
+            GameSession session = getGameSession();
+            if (session != null) {
+                session.removePlayer(this);
+            }
+        }
+    }
+
+    private void later(String move) {
+        GameScheduler.schedule(() -> play(move), THINK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void play(String move) {
+        GameSession session = getGameSession();
+        if (session != null) {
+            session.processMessage(this, move);
+        }
+    }
+}
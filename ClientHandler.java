@@ -0,0 +1,307 @@
+// ClientHandler.java
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+class ClientHandler implements Runnable {
+    private static final LongAdder messagesSent = new LongAdder();
+    private static final LongAdder flushes = new LongAdder();
+    private static final int WRITE_BATCH = 16;
+    // Drains blocking sockets; set by GameServer before the first connection
+    private static Executor writers;
+    
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private ByteArrayOutputStream lineBuffer;
+    private String playerName;
+    private volatile GameSession gameSession;
+    private volatile boolean spectator = false;
+    // Lets a new connection take this one's seat; see ResumeTokens
+    private volatile String resumeToken;
+    private volatile boolean disconnected = false;
+    // System.nanoTime() of the last line read; see IdleReaper
+    private volatile long lastHeard = System.nanoTime();
+    // Already on some thread's OutboundBatch, guarded by this
+    private boolean flushDeferred = false;
+    // Everything sent and not yet taken by the socket; game threads never write to it directly
+    protected final OutboundQueue outbound = new OutboundQueue();
+    // A writer task is draining this connection's queue
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean fellBehind = false;
+    private String lastResponse;
+    // Set once by the reading side; writes switch over under the handler's lock
+    private boolean binaryProtocol = false;
+    private boolean handshakeDone = false;
+    
+    public ClientHandler(Socket socket) {
+        this.socket = socket;
+        try {
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
+            lineBuffer = new ByteArrayOutputStream(128);
+        } catch (IOException e) {
+            System.out.println("❌ Error setting up player: " + e.getMessage());
+        }
+    }
+    
+    // For transports that feed lines in themselves (see NioGameServer)
+    protected ClientHandler() {
+    }
+    
+    public void run() {
+        try {
+            while (true) {
+                String inputLine;
+                if (binaryProtocol) {
+                    byte[] frame = WireCodec.readFrame(in);
+                    if (frame == null) break;
+                    inputLine = WireCodec.decodeClientMessage(frame, 0, frame.length);
+                } else {
+                    inputLine = readLine();
+                    if (inputLine == null) break;
+                }
+                handleLine(inputLine);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("⚠️ " + playerName + " disconnected!");
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("❌ Error closing socket.");
+            }
+            handleDisconnect();
+        }
+    }
+    
+    // Reads straight off the byte stream so nothing is buffered past the
+    // handshake line when the connection switches to binary frames
+    private String readLine() throws IOException {
+        lineBuffer.reset();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            lineBuffer.write(b);
+        }
+        if (b == -1 && lineBuffer.size() == 0) {
+            return null;
+        }
+        String line = lineBuffer.toString(StandardCharsets.UTF_8);
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+    
+    // The first line from a client is its name. The line after it may ask for
+    // the binary protocol; everything else goes to the session.
+    void handleLine(String line) {
+        lastHeard = System.nanoTime();
+        if (playerName == null) {
+            GameServer.login(this, line);
+            return;
+        }
+        if (!handshakeDone) {
+            handshakeDone = true;
+            if (line.equals(WireCodec.HANDSHAKE)) {
+                switchToBinary();
+                return;
+            }
+        }
+        // Heartbeat from an otherwise quiet client; the answer lets it know we are alive too
+        if (line.equals("PING")) {
+            sendMessage("PONG");
+            return;
+        }
+        if (line.startsWith("SPECTATE:")) {
+            GameServer.spectate(this, line.substring("SPECTATE:".length()).trim());
+            return;
+        }
+        if (line.startsWith("QUEUE:")) {
+            GameServer.queue(this, line.substring("QUEUE:".length()).trim().toUpperCase());
+            return;
+        }
+        if (line.equals("RANK") || line.equals("TOP") || line.startsWith("TOP:")) {
+            GameServer.ratings(this, line);
+            return;
+        }
+        GameSession session = gameSession;
+        if (session != null) {
+            session.processMessage(this, line);
+        }
+    }
+    
+    private synchronized void switchToBinary() {
+        outbound.offer(encodeText(WireCodec.HANDSHAKE_OK), 0);
+        binaryProtocol = true;
+        flush();
+    }
+    
+    boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+    
+    void handleDisconnect() {
+        disconnected = true;
+        GameServer.removeClient(this);
+        GameSession session = gameSession;
+        if (session != null) {
+            session.playerDisconnected(this);
+        } else {
+            ResumeTokens.revoke(this);
+        }
+    }
+    
+    // Drops the connection, e.g. when a reconnect takes over its seat
+    void disconnect() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Error closing socket.");
+        }
+    }
+    
+    public void sendMessage(String message) {
+        send(new OutboundMessage(message));
+    }
+    
+    // Broadcasts hand the same OutboundMessage to every receiver, so it is
+    // encoded once per protocol rather than once per connection. Sending only
+    // queues; the socket is written by the transport, never by the caller.
+    public synchronized void send(OutboundMessage message) {
+        if (disconnected) {
+            return;
+        }
+        if (!outbound.offer(message.encodedFor(binaryProtocol), message.getStateSlot())) {
+            fallBehind();
+            return;
+        }
+        messagesSent.increment();
+        if (!flushDeferred) {
+            flushDeferred = OutboundBatch.defer(this);
+            if (!flushDeferred) {
+                flush();
+            }
+        }
+    }
+    
+    public synchronized void flush() {
+        flushDeferred = false;
+        flushes.increment();
+        flushOutput();
+    }
+    
+    // The queue is full and the policy could not make room: the client is not
+    // reading, so it is cut off rather than buffered for without limit. Its
+    // seat is held like any other dropped connection's.
+    private void fallBehind() {
+        if (fellBehind) {
+            return;
+        }
+        fellBehind = true;
+        outbound.close();
+        OutboundQueue.countSlowDisconnect();
+        System.out.println("🐌 " + playerName + " is not keeping up, disconnecting");
+        disconnect();
+    }
+    
+    static void setWriterExecutor(Executor executor) {
+        writers = executor;
+    }
+    
+    int getQueuedBytes() {
+        return outbound.getQueuedBytes();
+    }
+    
+    static long getMessagesSent() {
+        return messagesSent.sum();
+    }
+    
+    static long getFlushCount() {
+        return flushes.sum();
+    }
+    
+    static byte[] encodeText(String message) {
+        return (message + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Transport hook, called with the handler's lock held once messages are
+    // queued. A blocking socket gets one writer task at a time, so only that
+    // task ever waits on a slow peer.
+    protected void flushOutput() {
+        if (draining.compareAndSet(false, true)) {
+            writers.execute(this::drainOutbound);
+        }
+    }
+    
+    private void drainOutbound() {
+        byte[][] batch = new byte[WRITE_BATCH][];
+        try {
+            do {
+                int count;
+                while ((count = outbound.drainTo(batch)) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        out.write(batch[i]);
+                        batch[i] = null;
+                    }
+                }
+                out.flush();
+                draining.set(false);
+                // Anything queued after the last drain but before the flag dropped is picked up here
+            } while (!outbound.isEmpty() && draining.compareAndSet(false, true));
+        } catch (IOException e) {
+            // The reading side notices the broken socket and cleans up; the
+            // flag stays set so no further writer is started
+            outbound.close();
+        }
+    }
+    
+    public String getPlayerName() {
+        return playerName;
+    }
+    
+    void setPlayerName(String playerName) {
+        this.playerName = playerName;
+    }
+    
+    boolean isDisconnected() {
+        return disconnected;
+    }
+    
+    long getLastHeard() {
+        return lastHeard;
+    }
+    
+    String getResumeToken() {
+        return resumeToken;
+    }
+    
+    void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+    
+    public GameSession getGameSession() {
+        return gameSession;
+    }
+    
+    public void setGameSession(GameSession session) {
+        this.gameSession = session;
+    }
+    
+    public boolean isSpectator() {
+        return spectator;
+    }
+    
+    public void setSpectator(boolean spectator) {
+        this.spectator = spectator;
+    }
+    
+    public void setLastResponse(String response) {
+        this.lastResponse = response;
+    }
+    
+    public String getLastResponse() {
+        return lastResponse;
+    }
+}
@@ -0,0 +1,117 @@
+// ClientProtocol.java
+import java.util.*;
+
+// Client side of the text protocol: splits a server line into its message
+// type and fields and hands it to a Listener. Shared by the Swing GameClient
+// and the headless LoadGenerator so both read the server the same way.
+// Routing is a table indexed by the WireCodec opcode of the line's prefix.
+public class ClientProtocol {
+    public interface Listener {
+        default void onWaiting(String message) {}
+        default void onGameReady(String message) {}
+        default void onGameStart(String gameType, String message) {}
+        // Full line, WINNER:... or DRAW:...
+        default void onGameResult(String result) {}
+        default void onBoard(String cells) {}
+        default void onTurn(String message) {}
+        default void onWait(String message) {}
+        default void onGameOver(String message) {}
+        default void onError(String message) {}
+        default void onScore(int first, int second) {}
+        default void onDiceRoll(int first, int second) {}
+        default void onDiceResult(String result) {}
+        default void onSessionEnd(String message) {}
+        default void onOpponentLeft(String message) {}
+        default void onPopup(String message) {}
+        // Sent at login; present it as RESUME:<token>:<name> after a dropped connection
+        default void onResumeToken(String token) {}
+        // After every rated round, and in answer to RANK
+        default void onRating(String game, int rating, int change, int rank, int players) {}
+        // In answer to TOP; entries read "1. alice 1612"
+        default void onLeaderboard(String game, List<String> entries) {}
+    }
+
+    // Gets the whole line and where its fields start
+    private interface Route {
+        void dispatch(Listener listener, String message, int start);
+    }
+
+    private static final Route[] ROUTES = new Route[WireCodec.LEADERBOARD + 1];
+
+    static {
+        ROUTES[WireCodec.WAITING] = (l, m, s) -> l.onWaiting(m.substring(s));
+        ROUTES[WireCodec.GAME_READY] = (l, m, s) -> l.onGameReady(m.substring(s));
+        ROUTES[WireCodec.GAME_START] = (l, m, s) -> {
+            int next = m.indexOf(':', s);
+            if (next < 0) {
+                l.onGameStart(m.substring(s), "");
+            } else {
+                l.onGameStart(m.substring(s, next), m.substring(next + 1));
+            }
+        };
+        ROUTES[WireCodec.WINNER] = (l, m, s) -> l.onGameResult(m);
+        ROUTES[WireCodec.DRAW] = (l, m, s) -> l.onGameResult(m);
+        ROUTES[WireCodec.BOARD] = (l, m, s) -> l.onBoard(m.substring(s));
+        ROUTES[WireCodec.TURN] = (l, m, s) -> l.onTurn(m.substring(s));
+        ROUTES[WireCodec.WAIT] = (l, m, s) -> l.onWait(m.substring(s));
+        ROUTES[WireCodec.GAME_OVER] = (l, m, s) -> l.onGameOver(m.substring(s));
+        ROUTES[WireCodec.ERROR] = (l, m, s) -> l.onError(m.substring(s));
+        ROUTES[WireCodec.SCORE] = (l, m, s) -> {
+            int next = m.indexOf(':', s);
+            l.onScore(Integer.parseInt(m, s, next, 10), Integer.parseInt(m, next + 1, m.length(), 10));
+        };
+        ROUTES[WireCodec.DICE_ROLL] = (l, m, s) -> {
+            int next = m.indexOf(':', s);
+            l.onDiceRoll(Integer.parseInt(m, s, next, 10), Integer.parseInt(m, next + 1, m.length(), 10));
+        };
+        ROUTES[WireCodec.DICE_RESULT] = (l, m, s) -> l.onDiceResult(m.substring(s));
+        ROUTES[WireCodec.SESSION_END] = (l, m, s) -> l.onSessionEnd(m.substring(s));
+        ROUTES[WireCodec.OPPONENT_LEFT] = (l, m, s) -> l.onOpponentLeft(m.substring(s));
+        ROUTES[WireCodec.POPUP] = (l, m, s) -> l.onPopup(m.substring(s));
+        ROUTES[WireCodec.RESUME_TOKEN] = (l, m, s) -> l.onResumeToken(m.substring(s));
+        ROUTES[WireCodec.RATING] = (l, m, s) -> {
+            String[] fields = m.substring(s).split(":");
+            l.onRating(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                       Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+        };
+        ROUTES[WireCodec.LEADERBOARD] = (l, m, s) -> {
+            int next = m.indexOf(':', s);
+            String entries = m.substring(next + 1);
+            l.onLeaderboard(m.substring(s, next), entries.isEmpty()
+                ? Collections.emptyList()
+                : Arrays.asList(entries.split(String.valueOf(WireCodec.ENTRY_SEPARATOR))));
+        };
+        // A whole game's state in one message: each part is an ordinary line
+        ROUTES[WireCodec.RESUMED] = (l, m, s) -> {
+            int end;
+            while ((end = m.indexOf(WireCodec.RESUME_SEPARATOR, s)) >= 0) {
+                dispatch(m.substring(s, end), l);
+                s = end + 1;
+            }
+            if (s < m.length()) {
+                dispatch(m.substring(s), l);
+            }
+        };
+    }
+
+    private ClientProtocol() {
+    }
+
+    // WireCodec opcode for the line's message type, 0 if it has none
+    public static int opcodeOf(String message) {
+        int colon = message.indexOf(':');
+        return colon < 0 ? 0 : WireCodec.serverOpcode(message, colon);
+    }
+
+    public static void dispatch(String message, Listener listener) {
+        dispatch(message, opcodeOf(message), listener);
+    }
+
+    // For callers that already looked the opcode up; unknown types are ignored
+    public static void dispatch(String message, int opcode, Listener listener) {
+        if (opcode <= 0 || opcode >= ROUTES.length) {
+            return;
+        }
+        ROUTES[opcode].dispatch(listener, message, message.indexOf(':') + 1);
+    }
+}
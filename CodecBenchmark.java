@@ -0,0 +1,118 @@
+// CodecBenchmark.java
+import java.nio.charset.StandardCharsets;
+
+// Compares the text and binary protocols on a typical message mix:
+// bytes on the wire per message and nanoseconds to encode plus parse one.
+//   java CodecBenchmark [iterations]
+public class CodecBenchmark {
+    private static final String[] SERVER_MESSAGES = {
+        "GAME_START:TTT:You are X - Your turn!",
+        "SCORE:3:2",
+        "BOARD:XO-X-O--X",
+        "TURN:Your turn (X)",
+        "WAIT:Opponent's turn (O)",
+        "DICE_ROLL:4:6",
+        "TURN:alice's turn! You have 2 rolls left!",
+        "WINNER:alice wins!",
+        "GAME_OVER:Play again? (YES/NO)"
+    };
+
+    private static final String[] CLIENT_MESSAGES = {
+        "CHOOSE_GAME:TTT", "4", "R", "ROLL", "YES", "GAME_RESULT_ACK"
+    };
+
+    // Keeps the JIT from dropping the work
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        System.out.println("📏 Bytes per message (server -> client)");
+        reportSizes(SERVER_MESSAGES, true);
+        System.out.println("📏 Bytes per message (client -> server)");
+        reportSizes(CLIENT_MESSAGES, false);
+
+        // Warm up both paths before timing either
+        runText(iterations / 4);
+        runBinary(iterations / 4);
+
+        int messages = iterations * (SERVER_MESSAGES.length + CLIENT_MESSAGES.length);
+        long textNanos = runText(iterations);
+        long binaryNanos = runBinary(iterations);
+        System.out.printf("⏱️ text:   %.1f ns/message%n", (double) textNanos / messages);
+        System.out.printf("⏱️ binary: %.1f ns/message%n", (double) binaryNanos / messages);
+        if (sink == 42) System.out.println();
+    }
+
+    private static void reportSizes(String[] messages, boolean fromServer) {
+        int textTotal = 0;
+        int binaryTotal = 0;
+        for (String message : messages) {
+            int text = ClientHandler.encodeText(message).length;
+            int binary = fromServer ? WireCodec.encodeServerMessage(message).length
+                                    : WireCodec.encodeClientMessage(message).length;
+            textTotal += text;
+            binaryTotal += binary;
+            System.out.printf("   %-45s text %3d  binary %3d%n", message, text, binary);
+        }
+        System.out.printf("   total%-40s text %3d  binary %3d%n", "", textTotal, binaryTotal);
+    }
+
+    private static long runText(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String message : SERVER_MESSAGES) {
+                byte[] wire = ClientHandler.encodeText(message);
+                sink += parseTextLikeClient(new String(wire, 0, wire.length - 1, StandardCharsets.UTF_8));
+            }
+            for (String message : CLIENT_MESSAGES) {
+                byte[] wire = ClientHandler.encodeText(message);
+                sink += new String(wire, 0, wire.length - 1, StandardCharsets.UTF_8).length();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runBinary(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String message : SERVER_MESSAGES) {
+                byte[] wire = WireCodec.encodeServerMessage(message);
+                sink += parseBinaryLikeClient(wire);
+            }
+            for (String message : CLIENT_MESSAGES) {
+                byte[] wire = WireCodec.encodeClientMessage(message);
+                sink += WireCodec.decodeClientMessage(wire, 2, wire.length - 2).length();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    // What a binary client does instead: switch on the opcode and read fields in place
+    private static int parseBinaryLikeClient(byte[] frame) {
+        switch (frame[2]) {
+            case WireCodec.SCORE:
+                return ((frame[3] << 24) | (frame[4] & 0xFF) << 16 | (frame[5] & 0xFF) << 8 | (frame[6] & 0xFF))
+                     + ((frame[7] << 24) | (frame[8] & 0xFF) << 16 | (frame[9] & 0xFF) << 8 | (frame[10] & 0xFF));
+            case WireCodec.DICE_ROLL:
+                return frame[3] + frame[4];
+            case WireCodec.BOARD:
+                return ((frame[3] & 0xFF) << 8 | (frame[4] & 0xFF)) + frame[5] + frame[6] + frame[7];
+            case WireCodec.GAME_START:
+                return frame[3] + new String(frame, 4, frame.length - 4, StandardCharsets.UTF_8).length();
+            default:
+                return new String(frame, 3, frame.length - 3, StandardCharsets.UTF_8).length();
+        }
+    }
+
+    // The prefix matching and splitting GameClient.processServerMessage does
+    private static int parseTextLikeClient(String message) {
+        if (message.startsWith("SCORE:") || message.startsWith("DICE_ROLL:")) {
+            String[] parts = message.substring(message.indexOf(':') + 1).split(":");
+            return Integer.parseInt(parts[0]) + Integer.parseInt(parts[1]);
+        } else if (message.startsWith("GAME_START:")) {
+            return message.substring("GAME_START:".length()).split(":").length;
+        }
+        return message.substring(message.indexOf(':') + 1).length();
+    }
+}
@@ -0,0 +1,69 @@
+// DiceEngine.java
+import java.util.*;
+
+class DiceEngine implements GameEngine {
+    private final int[] sums = new int[2];
+    private int currentRoller = 0;
+    private int rollsLeft = 3;
+
+    public void startRound(GameLogic game) {
+        Arrays.fill(sums, 0);
+        currentRoller = 0;
+        rollsLeft = 3;
+        game.sendToPlayers("GAME_START:DICE:" + game.player(currentRoller).getPlayerName() + "'s turn! You have 3 rolls!");
+        game.player(currentRoller).sendMessage("POPUP:It's your turn to roll the dice!");
+        game.broadcastScores();
+    }
+
+    public void handleMove(GameLogic game, int seat, String move) {
+        if (!move.equalsIgnoreCase("ROLL")) {
+            return;
+        }
+        if (seat != currentRoller) {
+            game.player(seat).sendMessage("ERROR:Not your turn!");
+            return;
+        }
+
+        // From the session's own seeded generator, so a match can be replayed roll for roll
+        int roll1 = game.random().nextInt(1, 7);
+        int roll2 = game.random().nextInt(1, 7);
+        sums[currentRoller] += roll1 + roll2;
+        rollsLeft--;
+
+        // Show the dice roll animation to both players
+        game.broadcast("DICE_ROLL:" + roll1 + ":" + roll2);
+
+        if (rollsLeft == 0) {
+            if (currentRoller == 0) {
+                // Switch to player 2 for their rolls
+                currentRoller = 1;
+                rollsLeft = 3;
+                game.broadcast("TURN:" + game.player(currentRoller).getPlayerName() + "'s turn! You have 3 rolls!");
+                game.player(currentRoller).sendMessage("POPUP:It's your turn to roll the dice!");
+            } else {
+                // Both players have rolled, determine winner
+                determineWinner(game);
+            }
+        } else {
+            game.broadcast("TURN:" + game.player(currentRoller).getPlayerName() + "'s turn! You have " + rollsLeft + " rolls left!");
+        }
+    }
+
+    public void appendRoundState(GameLogic game, int seat, List<String> lines) {
+        String roller = game.player(currentRoller).getPlayerName();
+        lines.add("GAME_START:DICE:" + roller + "'s turn! You have 3 rolls!");
+        lines.add("TURN:" + roller + "'s turn! You have " + rollsLeft + " rolls left!");
+    }
+
+    private void determineWinner(GameLogic game) {
+        if (sums[0] > sums[1]) {
+            game.finishRound("WINNER:" + game.player(0).getPlayerName() + " wins with " + sums[0] +
+                             " vs " + sums[1] + "!", 0);
+        } else if (sums[1] > sums[0]) {
+            game.finishRound("WINNER:" + game.player(1).getPlayerName() + " wins with " + sums[1] +
+                             " vs " + sums[0] + "!", 1);
+        } else {
+            game.finishRound("DRAW:It's a tie! Both players scored " + sums[0], -1);
+        }
+    }
+}
@@ -4,17 +4,57 @@ import java.awt.event.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.IntConsumer;
 
 public class GameClient {
+    private static final Color X_COLOR = new Color(52, 152, 219);
+    private static final Color O_COLOR = new Color(231, 76, 60);
+    // How hard to try for the same seat after the connection drops
+    private static final int RECONNECT_ATTEMPTS = 10;
+    private static final long RECONNECT_DELAY_MILLIS = 1500;
+    // A PING this often keeps the server from closing us as idle; no line at
+    // all for three of these means the server is gone
+    private static final int HEARTBEAT_MILLIS = 15_000;
+    // Fonts are immutable, so every widget shares one instance per face and size
+    private static final Map<String, Font> FONTS = new HashMap<>();
+    
     private JFrame frame;
-    private JPanel currentPanel;
+    private final AnimationClock animations = new AnimationClock();
+    private final CardLayout cards = new CardLayout();
+    private JPanel screens;
+    private Screen currentScreen;
+    // Built on first use, then reused for every later round
+    private WaitingScreen waitingScreen;
+    private SelectionScreen selectionScreen;
+    private RpsScreen rpsScreen;
+    private BoardScreen tttScreen;
+    private BoardScreen gomokuScreen;
+    private DiceScreen diceScreen;
     private Socket socket;
-    private PrintWriter out;
+    // Replaced by the reader thread when it reconnects
+    private volatile PrintWriter out;
     private BufferedReader in;
+    private String serverIP;
     private String playerName;
+    private volatile String resumeToken;
+    // Set before we close the socket ourselves, so the reader does not resume
+    private volatile boolean closing = false;
     private boolean isDialogShowing = false;
     private int[] scores = new int[2];
     private char playerSymbol = ' ';
+    // Latest RATING per game, shown under the scores on that game's screen
+    private final Map<String, String> ratings = new HashMap<>();
+    // LEADERBOARD lines that arrive together end up in one dialog
+    private final StringBuilder leaderboards = new StringBuilder();
+    
+    // Lines from the reader thread wait here and are handled in one EDT task
+    // per burst instead of one invokeLater each
+    private final Queue<Inbound> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Reader thread only: the newest queued line of each state-type message
+    private final Inbound[] latestState = new Inbound[WireCodec.POPUP + 1];
     
     public static void main(String[] args) {
         SwingUtilities.invokeLater(GameClient::new);
@@ -41,7 +81,7 @@ public class GameClient {
         gbc.fill = GridBagConstraints.HORIZONTAL;
         
         JLabel titleLabel = new JLabel("Multiplayer Game Suite");
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 28));
+        titleLabel.setFont(font("Arial", Font.BOLD, 28));
         titleLabel.setForeground(Color.WHITE);
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -49,7 +89,7 @@ public class GameClient {
         panel.add(titleLabel, gbc);
         
         JLabel nameLabel = new JLabel("Your Name:");
-        nameLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        nameLabel.setFont(font("Arial", Font.BOLD, 16));
         nameLabel.setForeground(Color.WHITE);
         gbc.gridx = 0;
         gbc.gridy = 1;
@@ -57,7 +97,7 @@ public class GameClient {
         panel.add(nameLabel, gbc);
         
         JTextField nameField = new JTextField(20);
-        nameField.setFont(new Font("Arial", Font.PLAIN, 16));
+        nameField.setFont(font("Arial", Font.PLAIN, 16));
         nameField.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(new Color(255, 255, 255, 150)),
             BorderFactory.createEmptyBorder(5, 10, 5, 10)
@@ -67,7 +107,7 @@ public class GameClient {
         panel.add(nameField, gbc);
         
         JLabel ipLabel = new JLabel("Server IP:");
-        ipLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        ipLabel.setFont(font("Arial", Font.BOLD, 16));
         ipLabel.setForeground(Color.WHITE);
         gbc.gridx = 0;
         gbc.gridy = 2;
@@ -75,7 +115,7 @@ public class GameClient {
         
         JTextField ipField = new JTextField(20);
         ipField.setText("localhost");
-        ipField.setFont(new Font("Arial", Font.PLAIN, 16));
+        ipField.setFont(font("Arial", Font.PLAIN, 16));
         ipField.setBorder(BorderFactory.createCompoundBorder(
             BorderFactory.createLineBorder(new Color(255, 255, 255, 150)),
             BorderFactory.createEmptyBorder(5, 10, 5, 10)
@@ -85,7 +125,7 @@ public class GameClient {
         panel.add(ipField, gbc);
         
         JButton connectBtn = createStyledButton("Connect", new Color(41, 128, 185));
-        connectBtn.setFont(new Font("Arial", Font.BOLD, 18));
+        connectBtn.setFont(font("Arial", Font.BOLD, 18));
         gbc.gridx = 0;
         gbc.gridy = 3;
         gbc.gridwidth = 2;
@@ -104,11 +144,16 @@ public class GameClient {
             connectToServer(serverIP, playerName);
         });
         
-        currentPanel = panel;
-        frame.add(panel);
+        screens = new JPanel(cards);
+        screens.add(panel, "LOGIN");
+        frame.add(screens);
         frame.setVisible(true);
     }
     
+    private static Font font(String name, int style, int size) {
+        return FONTS.computeIfAbsent(name + ':' + style + ':' + size, key -> new Font(name, style, size));
+    }
+    
     private JButton createStyledButton(String text, Color bgColor) {
         JButton button = new JButton(text);
         button.setBackground(bgColor);
@@ -133,151 +178,583 @@ public class GameClient {
     }
     
     private void connectToServer(String serverIP, String name) {
+        this.serverIP = serverIP;
         try {
-            socket = new Socket(serverIP, 5555);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            out.println(name);
-            
+            openConnection(name);
             new Thread(this::listenForMessages).start();
-            
+            startHeartbeat();
         } catch (IOException e) {
             JOptionPane.showMessageDialog(frame, "Could not connect to server: " + e.getMessage());
         }
     }
     
+    private void openConnection(String firstLine) throws IOException {
+        Socket opened = new Socket(serverIP, 5555);
+        opened.setSoTimeout(3 * HEARTBEAT_MILLIS);
+        in = new BufferedReader(new InputStreamReader(opened.getInputStream()));
+        out = new PrintWriter(opened.getOutputStream(), true);
+        socket = opened;
+        if (closing) {
+            // The user left while this reconnect was under way
+            opened.close();
+            throw new IOException("closed");
+        }
+        out.println(firstLine);
+    }
+    
+    private void startHeartbeat() {
+        Thread heartbeat = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(HEARTBEAT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                out.println("PING");
+            }
+        }, "heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+    
     private void listenForMessages() {
-        try {
-            String message;
-            while ((message = in.readLine()) != null) {
-                processServerMessage(message);
+        do {
+            try {
+                String message;
+                while ((message = in.readLine()) != null) {
+                    processServerMessage(message);
+                }
+            } catch (IOException e) {
+                // Lost the connection; try to get back into the same game below
             }
-        } catch (IOException e) {
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(frame, "Disconnected from server");
-                frame.dispose();
-                new GameClient();
-            });
+        } while (reconnect());
+        if (closing) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(frame, "Disconnected from server");
+            frame.dispose();
+            new GameClient();
+        });
+    }
+    
+    // The server holds our seat for a while after a drop; logging in with the
+    // resume token puts us back in it and the next message is the whole game
+    private boolean reconnect() {
+        String token = resumeToken;
+        if (token == null || closing) {
+            return false;
         }
+        SwingUtilities.invokeLater(() -> showWaitMessage("Connection lost, reconnecting..."));
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+                if (closing) {
+                    return false;
+                }
+                openConnection("RESUME:" + token + ":" + playerName);
+                return true;
+            } catch (IOException e) {
+                // Server not reachable yet, try again
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    // Leaving on purpose: the seat is given up, not held for a RESUME
+    private void disconnect() {
+        closing = true;
+        try { socket.close(); } catch (IOException ex) {}
     }
     
     private void processServerMessage(String message) {
-        SwingUtilities.invokeLater(() -> {
-            if (message.startsWith("WAITING:")) {
-                showWaitingScreen(message.substring("WAITING:".length()));
-            } else if (message.startsWith("GAME_READY:")) {
-                showGameSelection(message.substring("GAME_READY:".length()));
-            } else if (message.startsWith("GAME_START:")) {
-                String[] parts = message.substring("GAME_START:".length()).split(":");
-                startGame(parts[0], parts[1]);
-            } else if (message.startsWith("WINNER:") || message.startsWith("DRAW:")) {
-                showGameResult(message);
-            } else if (message.startsWith("BOARD:")) {
-                updateTTTBoard(message.substring("BOARD:".length()));
-            } else if (message.startsWith("TURN:")) {
-                showTurnMessage(message.substring("TURN:".length()));
-            } else if (message.startsWith("WAIT:")) {
-                showWaitMessage(message.substring("WAIT:".length()));
-            } else if (message.startsWith("GAME_OVER:")) {
-                // Handled in showGameResult now
-            } else if (message.startsWith("ERROR:")) {
-                showErrorMessage(message.substring("ERROR:".length()));
-            } else if (message.startsWith("SCORE:")) {
-                updateScores(message.substring("SCORE:".length()));
-            } else if (message.startsWith("DICE_ROLL:")) {
-                showDiceRoll(message.substring("DICE_ROLL:".length()));
-            } else if (message.startsWith("DICE_RESULT:")) {
-                showDiceResult(message.substring("DICE_RESULT:".length()));
-            } else if (message.startsWith("SESSION_END:")) {
-                showGameSelection("Game session ended. Choose a game:");
-            } else if (message.startsWith("OPPONENT_LEFT:")) {
-                showWaitingScreen(message.substring("OPPONENT_LEFT:".length()));
-            } else if (message.startsWith("POPUP:")) {
-                JOptionPane.showMessageDialog(frame, message.substring("POPUP:".length()));
+        if (message.equals("PONG")) {
+            return; // Only proves the connection is alive, which the read already did
+        }
+        int opcode = ClientProtocol.opcodeOf(message);
+        Inbound inbound = new Inbound(message, opcode);
+        int slot = stateSlot(opcode);
+        if (slot > 0) {
+            // A newer board, score or status line makes a queued older one pointless
+            Inbound older = latestState[slot];
+            if (older != null) {
+                older.superseded = true;
             }
-        });
+            latestState[slot] = inbound;
+        } else {
+            // Anything else is a boundary; state queued before it still gets shown
+            Arrays.fill(latestState, null);
+        }
+        inbox.add(inbound);
+        if (drainScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drainInbox);
+        }
     }
     
-    private void updateScores(String scoreMessage) {
-        String[] parts = scoreMessage.split(":");
-        scores[0] = Integer.parseInt(parts[0]);
-        scores[1] = Integer.parseInt(parts[1]);
+    // Messages that only replace what is on screen; TURN and WAIT share the status line
+    private static int stateSlot(int opcode) {
+        switch (opcode) {
+            case WireCodec.BOARD:
+            case WireCodec.SCORE:
+            case WireCodec.TURN:
+                return opcode;
+            case WireCodec.WAIT:
+                return WireCodec.TURN;
+            default:
+                return 0;
+        }
     }
     
-    private void showWaitingScreen(String message) {
-        frame.getContentPane().remove(currentPanel);
+    // The flag is cleared first so lines arriving while a modal dialog runs
+    // its own event loop get a fresh drain; both poll the same queue in order
+    private void drainInbox() {
+        drainScheduled.set(false);
+        Inbound inbound;
+        while ((inbound = inbox.poll()) != null) {
+            if (!inbound.superseded) {
+                ClientProtocol.dispatch(inbound.message, inbound.opcode, serverListener);
+            }
+        }
+    }
+    
+    private static class Inbound {
+        final String message;
+        final int opcode;
+        volatile boolean superseded = false;
+        
+        Inbound(String message, int opcode) {
+            this.message = message;
+            this.opcode = opcode;
+        }
+    }
+    
+    private final ClientProtocol.Listener serverListener = new ClientProtocol.Listener() {
+        @Override
+        public void onWaiting(String message) {
+            showWaitingScreen(message);
+        }
         
-        JPanel panel = new GradientPanel(new Color(52, 152, 219), new Color(155, 89, 182));
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createEmptyBorder(30, 30, 30, 30));
+        @Override
+        public void onGameReady(String message) {
+            showGameSelection(message);
+        }
         
-        JLabel waitingLabel = new JLabel(message, SwingConstants.CENTER);
-        waitingLabel.setFont(new Font("Arial", Font.PLAIN, 20));
-        waitingLabel.setForeground(Color.WHITE);
-        panel.add(waitingLabel, BorderLayout.CENTER);
+        @Override
+        public void onGameStart(String gameType, String message) {
+            startGame(gameType, message);
+        }
         
-        JButton cancelBtn = createStyledButton("Cancel", new Color(231, 76, 60));
-        cancelBtn.addActionListener(e -> {
-            try { socket.close(); } catch (IOException ex) {}
-            frame.dispose();
-            new GameClient();
-        });
+        @Override
+        public void onGameResult(String result) {
+            showGameResult(result);
+        }
+        
+        @Override
+        public void onBoard(String cells) {
+            updateTTTBoard(cells);
+        }
+        
+        @Override
+        public void onTurn(String message) {
+            showTurnMessage(message);
+        }
         
-        JPanel buttonPanel = new JPanel();
-        buttonPanel.setOpaque(false);
-        buttonPanel.add(cancelBtn);
-        panel.add(buttonPanel, BorderLayout.SOUTH);
+        @Override
+        public void onWait(String message) {
+            showWaitMessage(message);
+        }
         
-        currentPanel = panel;
-        frame.add(panel);
-        frame.revalidate();
+        // GAME_OVER is handled in showGameResult now
+        
+        @Override
+        public void onError(String message) {
+            showErrorMessage(message);
+        }
+        
+        @Override
+        public void onScore(int first, int second) {
+            scores[0] = first;
+            scores[1] = second;
+            GameScreen screen = currentGameScreen();
+            if (screen != null) {
+                screen.showScores();
+            }
+        }
+        
+        @Override
+        public void onDiceRoll(int first, int second) {
+            showDiceRoll(first, second);
+        }
+        
+        @Override
+        public void onDiceResult(String result) {
+            showDiceResult(result);
+        }
+        
+        @Override
+        public void onSessionEnd(String message) {
+            showGameSelection("Game session ended. Choose a game:");
+        }
+        
+        @Override
+        public void onOpponentLeft(String message) {
+            showWaitingScreen(message);
+        }
+        
+        @Override
+        public void onPopup(String message) {
+            JOptionPane.showMessageDialog(frame, message);
+        }
+        
+        @Override
+        public void onResumeToken(String token) {
+            resumeToken = token;
+        }
+        
+        @Override
+        public void onRating(String game, int rating, int change, int rank, int players) {
+            ratings.put(game, String.format("Rating %d (%+d) · #%d of %d", rating, change, rank, players));
+            GameScreen screen = currentGameScreen();
+            if (screen != null) {
+                screen.showScores();
+            }
+        }
+        
+        @Override
+        public void onLeaderboard(String game, java.util.List<String> entries) {
+            if (leaderboards.length() == 0) {
+                SwingUtilities.invokeLater(GameClient.this::showLeaderboards);
+            }
+            leaderboards.append(game).append('\n');
+            for (String entry : entries) {
+                leaderboards.append("   ").append(entry).append('\n');
+            }
+            if (entries.isEmpty()) {
+                leaderboards.append("   No rated games yet\n");
+            }
+            leaderboards.append('\n');
+        }
+    };
+    
+    private void showLeaderboards() {
+        String text = leaderboards.toString().trim();
+        leaderboards.setLength(0);
+        JOptionPane.showMessageDialog(frame, text, "Leaderboard", JOptionPane.INFORMATION_MESSAGE);
     }
     
-    private void showGameSelection(String message) {
-        frame.getContentPane().remove(currentPanel);
+    // Every screen is built the first time it is needed and then kept as a
+    // card; switching screens flips the card and updates go straight to the
+    // screen's own widgets.
+    private void showScreen(Screen screen) {
+        animations.stopAll();
+        currentScreen = screen;
+        screen.onShow();
+        cards.show(screens, screen.name);
+    }
+    
+    private abstract class Screen {
+        final String name;
+        final JPanel panel;
+        
+        Screen(String name, Color color1, Color color2, int padding) {
+            this.name = name;
+            panel = new GradientPanel(color1, color2);
+            panel.setLayout(new BorderLayout());
+            panel.setBorder(BorderFactory.createEmptyBorder(padding, padding, padding, padding));
+            screens.add(panel, name);
+        }
         
-        JPanel panel = new GradientPanel(new Color(46, 204, 113), new Color(52, 152, 219));
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createEmptyBorder(30, 30, 30, 30));
+        void onShow() {
+        }
+    }
+    
+    private class WaitingScreen extends Screen {
+        final JLabel waitingLabel;
         
-        JLabel titleLabel = new JLabel(message, SwingConstants.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 22));
-        titleLabel.setForeground(Color.WHITE);
-        panel.add(titleLabel, BorderLayout.NORTH);
+        WaitingScreen() {
+            super("WAITING", new Color(52, 152, 219), new Color(155, 89, 182), 30);
+            
+            waitingLabel = new JLabel("", SwingConstants.CENTER);
+            waitingLabel.setFont(font("Arial", Font.PLAIN, 20));
+            waitingLabel.setForeground(Color.WHITE);
+            panel.add(waitingLabel, BorderLayout.CENTER);
+            
+            JButton cancelBtn = createStyledButton("Cancel", new Color(231, 76, 60));
+            cancelBtn.addActionListener(e -> {
+                disconnect();
+                frame.dispose();
+                new GameClient();
+            });
+            
+            // Instead of waiting for whoever comes next, wait for someone of similar rating
+            JPanel rankedPanel = new JPanel();
+            rankedPanel.setOpaque(false);
+            JLabel rankedLabel = new JLabel("⭐ Ranked:");
+            rankedLabel.setFont(font("Arial", Font.BOLD, 14));
+            rankedLabel.setForeground(Color.WHITE);
+            rankedPanel.add(rankedLabel);
+            for (String game : new String[] {"RPS", "TTT", "GOMOKU", "DICE"}) {
+                JButton rankedBtn = createStyledButton(game, new Color(243, 156, 18));
+                rankedBtn.addActionListener(e -> out.println("QUEUE:" + game));
+                rankedPanel.add(rankedBtn);
+            }
+            
+            JPanel buttonPanel = new JPanel(new GridLayout(2, 1));
+            buttonPanel.setOpaque(false);
+            JPanel cancelPanel = new JPanel();
+            cancelPanel.setOpaque(false);
+            cancelPanel.add(cancelBtn);
+            buttonPanel.add(rankedPanel);
+            buttonPanel.add(cancelPanel);
+            panel.add(buttonPanel, BorderLayout.SOUTH);
+        }
+    }
+    
+    private class SelectionScreen extends Screen {
+        final JLabel titleLabel;
         
-        JPanel gamesPanel = new JPanel(new GridLayout(3, 1, 20, 20));
-        gamesPanel.setOpaque(false);
+        SelectionScreen() {
+            super("SELECTION", new Color(46, 204, 113), new Color(52, 152, 219), 30);
+            
+            titleLabel = new JLabel("", SwingConstants.CENTER);
+            titleLabel.setFont(font("Arial", Font.BOLD, 22));
+            titleLabel.setForeground(Color.WHITE);
+            panel.add(titleLabel, BorderLayout.NORTH);
+            
+            JPanel gamesPanel = new JPanel(new GridLayout(4, 1, 20, 20));
+            gamesPanel.setOpaque(false);
+            gamesPanel.add(createGameButton("Rock-Paper-Scissors", "RPS", new Color(241, 196, 15)));
+            gamesPanel.add(createGameButton("Tic-Tac-Toe", "TTT", new Color(230, 126, 34)));
+            gamesPanel.add(createGameButton("Gomoku (Five in a Row)", "GOMOKU", new Color(22, 160, 133)));
+            gamesPanel.add(createGameButton("Dice Roll Battle", "DICE", new Color(155, 89, 182)));
+            panel.add(gamesPanel, BorderLayout.CENTER);
+            
+            JButton exitBtn = createStyledButton("Exit", new Color(231, 76, 60));
+            exitBtn.addActionListener(e -> {
+                disconnect();
+                frame.dispose();
+            });
+            
+            JButton leaderboardBtn = createStyledButton("🏆 Leaderboard", new Color(243, 156, 18));
+            leaderboardBtn.addActionListener(e -> out.println("TOP"));
+            
+            JPanel bottomPanel = new JPanel();
+            bottomPanel.setOpaque(false);
+            bottomPanel.add(leaderboardBtn);
+            bottomPanel.add(exitBtn);
+            panel.add(bottomPanel, BorderLayout.SOUTH);
+        }
+    }
+    
+    // Scores and a status line across the top; each game fills in the rest
+    private abstract class GameScreen extends Screen {
+        final JLabel scoreLabel1;
+        final JLabel scoreLabel2;
+        final JLabel statusLabel;
+        final JLabel ratingLabel;
+        private final String scorePrefix1;
+        private final String scorePrefix2;
+        
+        GameScreen(String name, Color color1, Color color2, String scorePrefix1, String scorePrefix2) {
+            super(name, color1, color2, 20);
+            this.scorePrefix1 = scorePrefix1;
+            this.scorePrefix2 = scorePrefix2;
+            
+            JPanel topPanel = new JPanel(new GridLayout(3, 1));
+            topPanel.setOpaque(false);
+            
+            JPanel scorePanel = new JPanel(new GridLayout(1, 2));
+            scorePanel.setOpaque(false);
+            scoreLabel1 = new JLabel("", SwingConstants.CENTER);
+            scoreLabel2 = new JLabel("", SwingConstants.CENTER);
+            scoreLabel1.setFont(font("Arial", Font.BOLD, 16));
+            scoreLabel2.setFont(font("Arial", Font.BOLD, 16));
+            scoreLabel1.setForeground(Color.WHITE);
+            scoreLabel2.setForeground(Color.WHITE);
+            scorePanel.add(scoreLabel1);
+            scorePanel.add(scoreLabel2);
+            topPanel.add(scorePanel);
+            
+            statusLabel = new JLabel("", SwingConstants.CENTER);
+            statusLabel.setFont(font("Arial", Font.BOLD, 20));
+            statusLabel.setForeground(Color.WHITE);
+            topPanel.add(statusLabel);
+            
+            ratingLabel = new JLabel("", SwingConstants.CENTER);
+            ratingLabel.setFont(font("Arial", Font.PLAIN, 14));
+            ratingLabel.setForeground(Color.WHITE);
+            topPanel.add(ratingLabel);
+            
+            panel.add(topPanel, BorderLayout.NORTH);
+        }
         
-        JButton rpsBtn = createGameButton("Rock-Paper-Scissors", "RPS", new Color(241, 196, 15));
-        JButton tttBtn = createGameButton("Tic-Tac-Toe", "TTT", new Color(230, 126, 34));
-        JButton diceBtn = createGameButton("Dice Roll Battle", "DICE", new Color(155, 89, 182));
+        // A new round: fresh status line and whatever the game resets
+        void start(String message) {
+            statusLabel.setText(message);
+            showScores();
+        }
         
-        gamesPanel.add(rpsBtn);
-        gamesPanel.add(tttBtn);
-        gamesPanel.add(diceBtn);
+        void showScores() {
+            scoreLabel1.setText(scorePrefix1 + scores[0]);
+            scoreLabel2.setText(scorePrefix2 + scores[1]);
+            ratingLabel.setText(ratings.getOrDefault(name, ""));
+        }
+    }
+    
+    private class RpsScreen extends GameScreen {
+        private final java.util.List<Runnable> pulses = new ArrayList<>(3);
         
-        panel.add(gamesPanel, BorderLayout.CENTER);
+        RpsScreen() {
+            super("RPS", new Color(241, 196, 15), new Color(230, 126, 34), "Player 1: ", "Player 2: ");
+            
+            JPanel choicesPanel = new JPanel(new GridLayout(1, 3, 20, 20));
+            choicesPanel.setOpaque(false);
+            choicesPanel.setPreferredSize(new Dimension(600, 200));
+            
+            // Create animated emoji buttons
+            choicesPanel.add(createAnimatedEmojiButton("R", new Color(52, 152, 219), "✊", pulses));
+            choicesPanel.add(createAnimatedEmojiButton("P", new Color(155, 89, 182), "✋", pulses));
+            choicesPanel.add(createAnimatedEmojiButton("S", new Color(46, 204, 113), "✌️", pulses));
+            
+            panel.add(choicesPanel, BorderLayout.CENTER);
+        }
         
-        JButton exitBtn = createStyledButton("Exit", new Color(231, 76, 60));
-        exitBtn.addActionListener(e -> {
-            try { socket.close(); } catch (IOException ex) {}
-            frame.dispose();
-        });
+        @Override
+        void onShow() {
+            for (Runnable pulse : pulses) {
+                pulse.run();
+            }
+        }
+    }
+    
+    // Tic-Tac-Toe (3x3) and Gomoku (15x15) each get one of these
+    private class BoardScreen extends GameScreen {
+        private final JButton[] cells;
+        // What each button shows, so an update only touches changed cells
+        private final char[] shown;
+        
+        BoardScreen(String name, int boardSize) {
+            super(name, new Color(230, 126, 34), new Color(231, 76, 60), "Player X: ", "Player O: ");
+            
+            int gap = boardSize > 3 ? 1 : 5;
+            JPanel boardPanel = new JPanel(new GridLayout(boardSize, boardSize, gap, gap));
+            boardPanel.setOpaque(false);
+            boardPanel.setPreferredSize(new Dimension(350, 350));
+            
+            cells = new JButton[boardSize * boardSize];
+            shown = new char[cells.length];
+            Font cellFont = font("Arial", Font.BOLD, boardSize > 3 ? 14 : 60);
+            for (int i = 0; i < cells.length; i++) {
+                JButton btn = new JButton();
+                btn.setFont(cellFont);
+                btn.setMargin(new Insets(0, 0, 0, 0));
+                btn.setBackground(Color.WHITE);
+                btn.setFocusPainted(false);
+                btn.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+                final int pos = i;
+                btn.addActionListener(e -> {
+                    if (shown[pos] == '-') {
+                        out.println(String.valueOf(pos));
+                    }
+                });
+                cells[i] = btn;
+                boardPanel.add(btn);
+            }
+            
+            panel.add(boardPanel, BorderLayout.CENTER);
+        }
+        
+        @Override
+        void start(String message) {
+            super.start(message);
+            update(null);
+        }
         
-        JPanel bottomPanel = new JPanel();
-        bottomPanel.setOpaque(false);
-        bottomPanel.add(exitBtn);
-        panel.add(bottomPanel, BorderLayout.SOUTH);
+        // Null clears the board
+        void update(String boardState) {
+            for (int i = 0; i < cells.length; i++) {
+                char c = boardState != null && i < boardState.length() ? boardState.charAt(i) : '-';
+                if (c == shown[i]) continue;
+                shown[i] = c;
+                JButton btn = cells[i];
+                if (c == 'X') {
+                    btn.setText("X");
+                    btn.setForeground(X_COLOR);
+                } else if (c == 'O') {
+                    btn.setText("O");
+                    btn.setForeground(O_COLOR);
+                } else {
+                    btn.setText("");
+                }
+            }
+        }
+    }
+    
+    private class DiceScreen extends GameScreen {
+        final JLabel diceLabel1;
+        final JLabel diceLabel2;
+        
+        DiceScreen() {
+            super("DICE", new Color(155, 89, 182), new Color(41, 128, 185), "Player 1: ", "Player 2: ");
+            
+            JPanel dicePanel = new JPanel(new GridLayout(1, 2, 20, 20));
+            dicePanel.setOpaque(false);
+            
+            diceLabel1 = new JLabel("?", SwingConstants.CENTER);
+            diceLabel2 = new JLabel("?", SwingConstants.CENTER);
+            diceLabel1.setFont(font("Arial", Font.BOLD, 80));
+            diceLabel2.setFont(font("Arial", Font.BOLD, 80));
+            diceLabel1.setForeground(Color.WHITE);
+            diceLabel2.setForeground(Color.WHITE);
+            
+            dicePanel.add(diceLabel1);
+            dicePanel.add(diceLabel2);
+            
+            panel.add(dicePanel, BorderLayout.CENTER);
+            
+            JButton rollBtn = createStyledButton("Roll Dice", new Color(46, 204, 113));
+            rollBtn.setFont(font("Arial", Font.BOLD, 18));
+            rollBtn.addActionListener(e -> {
+                animateDiceRoll(diceLabel1, diceLabel2, () -> {
+                    out.println("ROLL");
+                });
+            });
+            
+            JPanel buttonPanel = new JPanel();
+            buttonPanel.setOpaque(false);
+            buttonPanel.add(rollBtn);
+            panel.add(buttonPanel, BorderLayout.SOUTH);
+        }
         
-        currentPanel = panel;
-        frame.add(panel);
-        frame.revalidate();
+        @Override
+        void start(String message) {
+            super.start(message);
+            diceLabel1.setText("?");
+            diceLabel2.setText("?");
+        }
+    }
+    
+    private void showWaitingScreen(String message) {
+        if (waitingScreen == null) {
+            waitingScreen = new WaitingScreen();
+        }
+        waitingScreen.waitingLabel.setText(message);
+        showScreen(waitingScreen);
+    }
+    
+    private void showGameSelection(String message) {
+        if (selectionScreen == null) {
+            selectionScreen = new SelectionScreen();
+        }
+        selectionScreen.titleLabel.setText(message);
+        showScreen(selectionScreen);
     }
     
     private JButton createGameButton(String text, String gameCode, Color bgColor) {
         JButton button = new JButton(text);
-        button.setFont(new Font("Arial", Font.BOLD, 18));
+        button.setFont(font("Arial", Font.BOLD, 18));
         button.setBackground(bgColor);
         button.setForeground(Color.WHITE);
         button.setFocusPainted(false);
@@ -304,60 +781,45 @@ public class GameClient {
     }
     
     private void startGame(String gameType, String message) {
-        frame.getContentPane().remove(currentPanel);
-        
+        GameScreen screen;
         switch (gameType) {
-            case "RPS": showRPSGame(message); break;
-            case "TTT": showTTTGame(message); break;
-            case "DICE": showDiceGame(message); break;
+            case "RPS":
+                if (rpsScreen == null) rpsScreen = new RpsScreen();
+                screen = rpsScreen;
+                break;
+            case "TTT":
+            case "GOMOKU":
+                // Extract player symbol from message if available
+                if (message.contains("You are X")) {
+                    playerSymbol = 'X';
+                } else if (message.contains("You are O")) {
+                    playerSymbol = 'O';
+                }
+                if (gameType.equals("TTT")) {
+                    if (tttScreen == null) tttScreen = new BoardScreen("TTT", 3);
+                    screen = tttScreen;
+                } else {
+                    if (gomokuScreen == null) gomokuScreen = new BoardScreen("GOMOKU", 15);
+                    screen = gomokuScreen;
+                }
+                break;
+            case "DICE":
+                if (diceScreen == null) diceScreen = new DiceScreen();
+                screen = diceScreen;
+                break;
+            default:
+                return;
         }
+        screen.start(message);
+        showScreen(screen);
     }
     
-    private void showRPSGame(String message) {
-        JPanel panel = new GradientPanel(new Color(241, 196, 15), new Color(230, 126, 34));
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        
-        JPanel scorePanel = new JPanel(new GridLayout(1, 2));
-        scorePanel.setOpaque(false);
-        
-        JLabel scoreLabel1 = new JLabel("Player 1: " + scores[0], SwingConstants.CENTER);
-        JLabel scoreLabel2 = new JLabel("Player 2: " + scores[1], SwingConstants.CENTER);
-        scoreLabel1.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel2.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel1.setForeground(Color.WHITE);
-        scoreLabel2.setForeground(Color.WHITE);
-        
-        scorePanel.add(scoreLabel1);
-        scorePanel.add(scoreLabel2);
-        panel.add(scorePanel, BorderLayout.NORTH);
-        
-        JLabel statusLabel = new JLabel(message, SwingConstants.CENTER);
-        statusLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        statusLabel.setForeground(Color.WHITE);
-        panel.add(statusLabel, BorderLayout.CENTER);
-        
-        JPanel choicesPanel = new JPanel(new GridLayout(1, 3, 20, 20));
-        choicesPanel.setOpaque(false);
-        choicesPanel.setPreferredSize(new Dimension(600, 200));
-        
-        // Create animated emoji buttons
-        JButton rockBtn = createAnimatedEmojiButton("R", new Color(52, 152, 219), "✊");
-        JButton paperBtn = createAnimatedEmojiButton("P", new Color(155, 89, 182), "✋");
-        JButton scissorsBtn = createAnimatedEmojiButton("S", new Color(46, 204, 113), "✌️");
-        
-        choicesPanel.add(rockBtn);
-        choicesPanel.add(paperBtn);
-        choicesPanel.add(scissorsBtn);
-        
-        panel.add(choicesPanel, BorderLayout.SOUTH);
-        
-        currentPanel = panel;
-        frame.add(panel);
-        frame.revalidate();
+    private GameScreen currentGameScreen() {
+        return currentScreen instanceof GameScreen ? (GameScreen) currentScreen : null;
     }
     
-    private JButton createAnimatedEmojiButton(String choice, Color bgColor, String emoji) {
+    // The pulse is added to onShow so the screen can restart it whenever it comes back
+    private JButton createAnimatedEmojiButton(String choice, Color bgColor, String emoji, java.util.List<Runnable> onShow) {
         JButton button = new JButton();
         button.setBackground(bgColor);
         button.setForeground(Color.WHITE);
@@ -368,27 +830,11 @@ public class GameClient {
         
         // Create emoji label with animation
         JLabel emojiLabel = new JLabel(emoji, SwingConstants.CENTER);
-        emojiLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 60));
+        emojiLabel.setFont(font("Segoe UI Emoji", Font.PLAIN, 60));
         
         // Add pulsing animation
-        javax.swing.Timer pulseTimer = new javax.swing.Timer(100, null);
-        pulseTimer.addActionListener(new ActionListener() {
-            private float alpha = 0.5f;
-            private boolean increasing = true;
-            
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (increasing) {
-                    alpha += 0.05f;
-                    if (alpha >= 1.0f) increasing = false;
-                } else {
-                    alpha -= 0.05f;
-                    if (alpha <= 0.5f) increasing = true;
-                }
-                emojiLabel.setForeground(new Color(1f, 1f, 1f, alpha));
-            }
-        });
-        pulseTimer.start();
+        AnimationClock.Pulse pulse = new AnimationClock.Pulse(emojiLabel);
+        onShow.add(() -> animations.start(emojiLabel, pulse));
         
         button.setLayout(new BorderLayout());
         button.add(emojiLabel, BorderLayout.CENTER);
@@ -397,32 +843,21 @@ public class GameClient {
             @Override
             public void mouseEntered(MouseEvent e) {
                 button.setBackground(bgColor.darker());
-                pulseTimer.setDelay(50); // Speed up animation on hover
+                pulse.setFast(true); // Speed up animation on hover
             }
             
             @Override
             public void mouseExited(MouseEvent e) {
                 button.setBackground(bgColor);
-                pulseTimer.setDelay(100); // Slow down animation when not hovered
+                pulse.setFast(false); // Slow down animation when not hovered
             }
         });
         
         button.addActionListener(e -> {
-            // Add a click animation
-            javax.swing.Timer clickTimer = new javax.swing.Timer(50, new ActionListener() {
-                int count = 0;
-                @Override
-                public void actionPerformed(ActionEvent e) {
-                    if (count < 3) {
-                        emojiLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 60 + (count % 2 == 0 ? 10 : -10)));
-                        count++;
-                    } else {
-                        emojiLabel.setFont(new Font("Segoe UI Emoji", Font.PLAIN, 60));
-                        ((javax.swing.Timer)e.getSource()).stop();
-                    }
-                }
-            });
-            clickTimer.start();
+            // Add a click animation: grow, shrink, grow, settle, 50 ms apiece
+            animations.start(emojiLabel, new AnimationClock.Stepper(50, 4, step ->
+                emojiLabel.setFont(font("Segoe UI Emoji", Font.PLAIN, step == 3 ? 60 : 60 + (step % 2 == 0 ? 10 : -10))),
+                null));
             
             out.println(choice);
         });
@@ -430,180 +865,30 @@ public class GameClient {
         return button;
     }
     
-    private void showTTTGame(String message) {
-        // Extract player symbol from message if available
-        if (message.contains("You are X")) {
-            playerSymbol = 'X';
-        } else if (message.contains("You are O")) {
-            playerSymbol = 'O';
-        }
-        
-        JPanel panel = new GradientPanel(new Color(230, 126, 34), new Color(231, 76, 60));
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        
-        JPanel scorePanel = new JPanel(new GridLayout(1, 2));
-        scorePanel.setOpaque(false);
-        
-        JLabel scoreLabel1 = new JLabel("Player X: " + scores[0], SwingConstants.CENTER);
-        JLabel scoreLabel2 = new JLabel("Player O: " + scores[1], SwingConstants.CENTER);
-        scoreLabel1.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel2.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel1.setForeground(Color.WHITE);
-        scoreLabel2.setForeground(Color.WHITE);
-        
-        scorePanel.add(scoreLabel1);
-        scorePanel.add(scoreLabel2);
-        panel.add(scorePanel, BorderLayout.NORTH);
-        
-        JLabel statusLabel = new JLabel(message, SwingConstants.CENTER);
-        statusLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        statusLabel.setForeground(Color.WHITE);
-        panel.add(statusLabel, BorderLayout.NORTH);
-        
-        JPanel boardPanel = new JPanel(new GridLayout(3, 3, 5, 5));
-        boardPanel.setOpaque(false);
-        boardPanel.setPreferredSize(new Dimension(350, 350));
-        
-        for (int i = 0; i < 9; i++) {
-            JButton btn = new JButton();
-            btn.setFont(new Font("Arial", Font.BOLD, 60));
-            btn.setBackground(Color.WHITE);
-            btn.setFocusPainted(false);
-            btn.setBorder(BorderFactory.createLineBorder(Color.GRAY));
-            final int pos = i;
-            btn.addActionListener(e -> {
-                if (btn.getText().isEmpty()) {
-                    out.println(String.valueOf(pos));
-                }
-            });
-            boardPanel.add(btn);
-        }
-        
-        panel.add(boardPanel, BorderLayout.CENTER);
-        
-        currentPanel = panel;
-        frame.add(panel);
-        frame.revalidate();
+    private void animateDiceRoll(JLabel dice1, JLabel dice2, Runnable onComplete) {
+        animations.start(dice1, new AnimationClock.Stepper(100, 10, step -> {
+            if (step % 2 == 0) {
+                dice1.setText("?");
+                dice2.setText("?");
+            } else {
+                int random1 = (int)(Math.random() * 6) + 1;
+                int random2 = (int)(Math.random() * 6) + 1;
+                dice1.setText(String.valueOf(random1));
+                dice2.setText(String.valueOf(random2));
+            }
+        }, onComplete));
     }
     
     private void updateTTTBoard(String boardState) {
-        if (currentPanel.getComponentCount() < 3) return;
-        
-        Component centerComp = currentPanel.getComponent(2);
-        if (centerComp instanceof JPanel) {
-            JPanel boardPanel = (JPanel) centerComp;
-            Component[] buttons = boardPanel.getComponents();
-            for (int i = 0; i < 9 && i < buttons.length; i++) {
-                if (buttons[i] instanceof JButton) {
-                    JButton btn = (JButton) buttons[i];
-                    char c = boardState.charAt(i);
-                    if (c == '-') {
-                        btn.setText("");
-                        btn.setBackground(Color.WHITE);
-                    } else {
-                        btn.setText(String.valueOf(c));
-                        btn.setForeground(c == 'X' ? new Color(52, 152, 219) : new Color(231, 76, 60));
-                        btn.setBackground(Color.WHITE);
-                    }
-                }
-            }
+        if (currentScreen instanceof BoardScreen) {
+            ((BoardScreen) currentScreen).update(boardState);
         }
     }
     
-    private void showDiceGame(String message) {
-        JPanel panel = new GradientPanel(new Color(155, 89, 182), new Color(41, 128, 185));
-        panel.setLayout(new BorderLayout());
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        
-        JPanel scorePanel = new JPanel(new GridLayout(1, 2));
-        scorePanel.setOpaque(false);
-        
-        JLabel scoreLabel1 = new JLabel("Player 1: " + scores[0], SwingConstants.CENTER);
-        JLabel scoreLabel2 = new JLabel("Player 2: " + scores[1], SwingConstants.CENTER);
-        scoreLabel1.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel2.setFont(new Font("Arial", Font.BOLD, 16));
-        scoreLabel1.setForeground(Color.WHITE);
-        scoreLabel2.setForeground(Color.WHITE);
-        
-        scorePanel.add(scoreLabel1);
-        scorePanel.add(scoreLabel2);
-        panel.add(scorePanel, BorderLayout.NORTH);
-        
-        JLabel turnLabel = new JLabel(message, SwingConstants.CENTER);
-        turnLabel.setFont(new Font("Arial", Font.BOLD, 20));
-        turnLabel.setForeground(Color.WHITE);
-        panel.add(turnLabel, BorderLayout.NORTH);
-        
-        JPanel dicePanel = new JPanel(new GridLayout(1, 2, 20, 20));
-        dicePanel.setOpaque(false);
-        
-        JLabel diceLabel1 = new JLabel("?", SwingConstants.CENTER);
-        JLabel diceLabel2 = new JLabel("?", SwingConstants.CENTER);
-        diceLabel1.setFont(new Font("Arial", Font.BOLD, 80));
-        diceLabel2.setFont(new Font("Arial", Font.BOLD, 80));
-        diceLabel1.setForeground(Color.WHITE);
-        diceLabel2.setForeground(Color.WHITE);
-        
-        dicePanel.add(diceLabel1);
-        dicePanel.add(diceLabel2);
-        
-        panel.add(dicePanel, BorderLayout.CENTER);
-        
-        JButton rollBtn = createStyledButton("Roll Dice", new Color(46, 204, 113));
-        rollBtn.setFont(new Font("Arial", Font.BOLD, 18));
-        rollBtn.addActionListener(e -> {
-            animateDiceRoll(diceLabel1, diceLabel2, () -> {
-                out.println("ROLL");
-            });
-        });
-        
-        JPanel buttonPanel = new JPanel();
-        buttonPanel.setOpaque(false);
-        buttonPanel.add(rollBtn);
-        panel.add(buttonPanel, BorderLayout.SOUTH);
-        
-        currentPanel = panel;
-        frame.add(panel);
-        frame.revalidate();
-    }
-    
-    private void animateDiceRoll(JLabel dice1, JLabel dice2, Runnable onComplete) {
-        javax.swing.Timer timer = new javax.swing.Timer(100, null);
-        final int[] count = {0};
-        
-        timer.addActionListener(e -> {
-            if (count[0] < 10) {
-                if (count[0] % 2 == 0) {
-                    dice1.setText("?");
-                    dice2.setText("?");
-                } else {
-                    int random1 = (int)(Math.random() * 6) + 1;
-                    int random2 = (int)(Math.random() * 6) + 1;
-                    dice1.setText(String.valueOf(random1));
-                    dice2.setText(String.valueOf(random2));
-                }
-                count[0]++;
-            } else {
-                timer.stop();
-                if (onComplete != null) {
-                    onComplete.run();
-                }
-            }
-        });
-        timer.start();
-    }
-    
-    private void showDiceRoll(String rollMessage) {
-        String[] parts = rollMessage.split(":");
-        if (currentPanel.getComponentCount() > 2 && currentPanel.getComponent(2) instanceof JPanel) {
-            JPanel dicePanel = (JPanel) currentPanel.getComponent(2);
-            if (dicePanel.getComponentCount() >= 2) {
-                JLabel dice1 = (JLabel) dicePanel.getComponent(0);
-                JLabel dice2 = (JLabel) dicePanel.getComponent(1);
-                dice1.setText(parts[0]);
-                dice2.setText(parts[1]);
-            }
+    private void showDiceRoll(int first, int second) {
+        if (currentScreen == diceScreen && diceScreen != null) {
+            diceScreen.diceLabel1.setText(String.valueOf(first));
+            diceScreen.diceLabel2.setText(String.valueOf(second));
         }
     }
     
@@ -615,14 +900,16 @@ public class GameClient {
     }
     
     private void showTurnMessage(String message) {
-        if (currentPanel.getComponentCount() > 1 && currentPanel.getComponent(1) instanceof JLabel) {
-            ((JLabel) currentPanel.getComponent(1)).setText(message);
+        GameScreen screen = currentGameScreen();
+        if (screen != null) {
+            screen.statusLabel.setText(message);
         }
     }
     
     private void showWaitMessage(String message) {
-        if (currentPanel.getComponentCount() > 1 && currentPanel.getComponent(1) instanceof JLabel) {
-            ((JLabel) currentPanel.getComponent(1)).setText(message);
+        GameScreen screen = currentGameScreen();
+        if (screen != null) {
+            screen.statusLabel.setText(message);
         }
     }
     
@@ -661,6 +948,8 @@ public class GameClient {
     class GradientPanel extends JPanel {
         private Color color1;
         private Color color2;
+        // Rebuilt only when the panel changes size
+        private GradientPaint paint;
         
         public GradientPanel(Color color1, Color color2) {
             this.color1 = color1;
@@ -672,9 +961,150 @@ public class GameClient {
             super.paintComponent(g);
             Graphics2D g2d = (Graphics2D) g;
             g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            GradientPaint gp = new GradientPaint(0, 0, color1, getWidth(), getHeight(), color2);
+            GradientPaint gp = paint;
+            if (gp == null || gp.getPoint2().getX() != getWidth() || gp.getPoint2().getY() != getHeight()) {
+                gp = new GradientPaint(0, 0, color1, getWidth(), getHeight(), color2);
+                paint = gp;
+            }
             g2d.setPaint(gp);
             g2d.fillRect(0, 0, getWidth(), getHeight());
         }
     }
-}
\ No newline at end of file
+}
+
+// One Swing timer paces every animation in the client. Each animation is tied
+// to a component: it only advances while that component is showing and is
+// dropped once the component leaves the window, so old screens cost nothing.
+// The timer itself stops whenever nothing is animating.
+class AnimationClock {
+    private static final int FRAME_MILLIS = 16;
+    
+    interface Animation {
+        // Called once per frame with the time since the last one; false when finished
+        boolean step(long deltaMillis);
+    }
+    
+    private static class Running {
+        final JComponent owner;
+        final Animation animation;
+        
+        Running(JComponent owner, Animation animation) {
+            this.owner = owner;
+            this.animation = animation;
+        }
+    }
+    
+    private final java.util.List<Running> running = new ArrayList<>();
+    private final javax.swing.Timer timer = new javax.swing.Timer(FRAME_MILLIS, e -> tick());
+    private long lastTick;
+    
+    void start(JComponent owner, Animation animation) {
+        running.add(new Running(owner, animation));
+        if (!timer.isRunning()) {
+            lastTick = System.nanoTime();
+            timer.start();
+        }
+    }
+    
+    // Screen change: nothing on the old screen needs to move any more
+    void stopAll() {
+        running.clear();
+        timer.stop();
+    }
+    
+    private void tick() {
+        long now = System.nanoTime();
+        long delta = (now - lastTick) / 1_000_000;
+        lastTick = now;
+        // Index loop: a finishing animation may start another or stop them all
+        for (int i = 0; i < running.size(); ) {
+            Running entry = running.get(i);
+            boolean keep;
+            if (!entry.owner.isDisplayable()) {
+                keep = false;
+            } else if (!entry.owner.isShowing()) {
+                keep = true;
+            } else {
+                keep = entry.animation.step(delta);
+            }
+            if (keep) {
+                i++;
+            } else if (i < running.size() && running.get(i) == entry) {
+                running.remove(i);
+            }
+        }
+        if (running.isEmpty()) {
+            timer.stop();
+        }
+    }
+    
+    // Runs onStep(0..steps-1) one step per interval, then onDone
+    static class Stepper implements Animation {
+        private final long intervalMillis;
+        private final int steps;
+        private final IntConsumer onStep;
+        private final Runnable onDone;
+        private long elapsed = 0;
+        private int next = 0;
+        
+        Stepper(long intervalMillis, int steps, IntConsumer onStep, Runnable onDone) {
+            this.intervalMillis = intervalMillis;
+            this.steps = steps;
+            this.onStep = onStep;
+            this.onDone = onDone;
+        }
+        
+        public boolean step(long deltaMillis) {
+            elapsed += deltaMillis;
+            while (next < steps && elapsed >= next * intervalMillis) {
+                onStep.accept(next++);
+            }
+            if (next == steps && elapsed >= steps * intervalMillis) {
+                if (onDone != null) {
+                    onDone.run();
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+    
+    // Fades a label between half and full white, twice as fast while hovered.
+    // Only the 11 alpha levels exist, and the label is touched only when the
+    // level changes, so a pulsing label repaints ten times a second at most.
+    static class Pulse implements Animation {
+        private static final Color[] LEVELS = new Color[11];
+        private static final long CYCLE_MILLIS = 2000;
+        
+        static {
+            for (int i = 0; i < LEVELS.length; i++) {
+                LEVELS[i] = new Color(1f, 1f, 1f, 0.5f + i * 0.05f);
+            }
+        }
+        
+        private final JLabel label;
+        private boolean fast = false;
+        private long phase = 0;
+        private int level = -1;
+        
+        Pulse(JLabel label) {
+            this.label = label;
+        }
+        
+        void setFast(boolean fast) {
+            this.fast = fast;
+        }
+        
+        public boolean step(long deltaMillis) {
+            phase = (phase + (fast ? deltaMillis * 2 : deltaMillis)) % CYCLE_MILLIS;
+            long half = CYCLE_MILLIS / 2;
+            long rising = phase < half ? phase : CYCLE_MILLIS - phase;
+            int next = (int) (rising * (LEVELS.length - 1) / half);
+            if (next != level) {
+                level = next;
+                label.setForeground(LEVELS[level]);
+            }
+            return true;
+        }
+    }
+}
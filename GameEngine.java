@@ -0,0 +1,22 @@
+// GameEngine.java
+import java.util.*;
+
+// The rules and per-round state of one game. GameLogic owns everything the
+// games share (players, spectators, scores, the replay handshake) and hands
+// each move to the engine, which only holds the fields its own game needs.
+public interface GameEngine {
+    // Reset for a new round and tell the players how it starts
+    void startRound(GameLogic game);
+
+    // A move from the player in the given seat while a round is running
+    void handleMove(GameLogic game, int seat, String move);
+
+    // The lines that redraw the round for the player in the seat after a
+    // reconnect: the seat's GAME_START line, then any board, then the seat's
+    // TURN or WAIT line last if it has one. GameLogic adds the score.
+    void appendRoundState(GameLogic game, int seat, List<String> lines);
+
+    // Anything a spectator arriving mid-round needs beyond the score
+    default void sendStateTo(ClientHandler spectator) {
+    }
+}
@@ -0,0 +1,41 @@
+// GameEngines.java
+import java.util.function.*;
+
+// Engine factories indexed by the same compact id WireCodec puts on the
+// wire, so a new game is one register call plus its WireCodec name.
+final class GameEngines {
+    private static final Supplier<GameEngine>[] FACTORIES = newTable(8);
+
+    static {
+        register("RPS", RpsEngine::new);
+        register("TTT", () -> new BoardEngine("TTT"));
+        register("GOMOKU", () -> new BoardEngine("GOMOKU"));
+        register("DICE", DiceEngine::new);
+    }
+
+    private GameEngines() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<GameEngine>[] newTable(int size) {
+        return (Supplier<GameEngine>[]) new Supplier<?>[size];
+    }
+
+    static void register(String gameName, Supplier<GameEngine> factory) {
+        int id = WireCodec.gameId(gameName);
+        if (id <= 0 || id >= FACTORIES.length) {
+            throw new IllegalArgumentException("No game id for " + gameName);
+        }
+        FACTORIES[id] = factory;
+    }
+
+    static boolean isRegistered(int gameId) {
+        return gameId > 0 && gameId < FACTORIES.length && FACTORIES[gameId] != null;
+    }
+
+    // Null when nothing is registered under the id
+    static GameEngine create(int gameId) {
+        Supplier<GameEngine> factory = gameId > 0 && gameId < FACTORIES.length ? FACTORIES[gameId] : null;
+        return factory == null ? null : factory.get();
+    }
+}
@@ -0,0 +1,36 @@
+// GameScheduler.java
+import java.util.concurrent.*;
+
+// The one timer thread for the whole server. Anything that has to happen
+// later (replay prompts, timeouts) is scheduled here instead of starting its
+// own java.util.Timer. Tasks should only hand work off, e.g. post to a
+// session mailbox, so one thread keeps up with every session.
+public class GameScheduler {
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private GameScheduler() {
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "game-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Cancelled timers are dropped right away instead of waiting out their delay
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return EXECUTOR.schedule(task, delay, unit);
+    }
+
+    public static ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return EXECUTOR.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    public static int getPendingCount() {
+        return EXECUTOR.getQueue().size();
+    }
+}
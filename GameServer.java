@@ -1,174 +1,235 @@
 // GameServer.java
 import java.io.*;
 import java.net.*;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class GameServer {
-    private static final int PORT = 5555;
-    private static List<ClientHandler> clients = new ArrayList<>();
-    private static List<GameSession> gameSessions = new ArrayList<>();
+    private static Set<ClientHandler> clients = ConcurrentHashMap.newKeySet();
+    private static Matchmaker matchmaker = new Matchmaker();
+    private static ExecutorService handlerExecutor;
+    private static IdleReaper idleReaper;
 
     public static void main(String[] args) {
+        boolean nio = false;
+        boolean virtual = false;
+        int reactors = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int port = 5555;
+        int metricsPort = 0;
+        long idleSeconds = 60;
+        int outboundLimitKb = 256;
+        OutboundQueue.Policy slowPolicy = OutboundQueue.Policy.DROP_STALE;
+        for (String arg : args) {
+            if (arg.equals("--nio")) {
+                nio = true;
+            } else if (arg.equals("--virtual")) {
+                virtual = true;
+            } else if (arg.startsWith("--bots=")) {
+                // Seconds a lone player waits before a bot takes the other seat
+                long seconds = Long.parseLong(arg.substring("--bots=".length()));
+                matchmaker.enableBots(TimeUnit.SECONDS.toMillis(seconds), 500);
+            } else if (arg.startsWith("--port=")) {
+                // Behind a LobbyRouter each backend gets its own port
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--reactors=")) {
+                reactors = Integer.parseInt(arg.substring("--reactors=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                // Hex, as printed at startup, to replay a run's dice
+                matchmaker.setMasterSeed(Long.parseUnsignedLong(arg.substring("--seed=".length()), 16));
+            } else if (arg.startsWith("--idle-timeout=")) {
+                // Seconds without a line (even a PING) before a connection is closed, 0 for never
+                idleSeconds = Long.parseLong(arg.substring("--idle-timeout=".length()));
+            } else if (arg.startsWith("--resume-grace=")) {
+                // Seconds a dropped player's seat is held for them, 0 to free it at once
+                long seconds = Long.parseLong(arg.substring("--resume-grace=".length()));
+                matchmaker.setResumeGraceMillis(TimeUnit.SECONDS.toMillis(seconds));
+            } else if (arg.startsWith("--journal=")) {
+                try {
+                    matchmaker.setJournal(MatchJournal.open(Paths.get(arg.substring("--journal=".length()))));
+                } catch (IOException e) {
+                    System.out.println("⚠️ Match journal not opened: " + e.getMessage());
+                }
+            } else if (arg.startsWith("--outbound-limit=")) {
+                // KB a connection may have queued before the slow-client policy kicks in
+                outboundLimitKb = Integer.parseInt(arg.substring("--outbound-limit=".length()));
+            } else if (arg.startsWith("--slow-client=")) {
+                // drop: throw away superseded BOARD/SCORE/status lines first; disconnect: cut off at once
+                slowPolicy = arg.substring("--slow-client=".length()).equalsIgnoreCase("disconnect")
+                    ? OutboundQueue.Policy.DISCONNECT : OutboundQueue.Policy.DROP_STALE;
+            } else if (arg.startsWith("--ratings=")) {
+                try {
+                    matchmaker.setLeaderboard(Leaderboard.open(Paths.get(arg.substring("--ratings=".length()))));
+                } catch (IOException e) {
+                    System.out.println("⚠️ Ratings not loaded: " + e.getMessage());
+                }
+            } else if (arg.startsWith("--metrics=")) {
+                metricsPort = Integer.parseInt(arg.substring("--metrics=".length()));
+            }
+        }
+        
         System.out.println("🎮 Game Server Started! Waiting for players...");
+        System.out.println("🌱 Master seed " + Long.toHexString(matchmaker.getMasterSeed()));
+        OutboundQueue.configure(outboundLimitKb * 1024, slowPolicy);
+        GameScheduler.scheduleAtFixedRate(GameServer::logOutboundStats, 60, 60, TimeUnit.SECONDS);
+        matchmaker.getSkillMatcher().start();
+        if (idleSeconds > 0) {
+            idleReaper = new IdleReaper(TimeUnit.SECONDS.toMillis(idleSeconds));
+            idleReaper.start();
+        }
+        if (metricsPort > 0) {
+            try {
+                new ServerMetrics(clients, matchmaker).start(metricsPort);
+            } catch (IOException e) {
+                System.out.println("⚠️ Metrics endpoint not started: " + e.getMessage());
+            }
+        }
+        
+        if (nio) {
+            try {
+                new NioGameServer(port, reactors).serve();
+            } catch (IOException e) {
+                System.out.println("❌ Server error: " + e.getMessage());
+            }
+            return;
+        }
         
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+        handlerExecutor = virtual ? newVirtualThreadExecutor() : Executors.newCachedThreadPool();
+        ClientHandler.setWriterExecutor(handlerExecutor);
+        
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
             while (true) {
                 Socket socket = serverSocket.accept();
                 System.out.println("🔗 New connection: " + socket);
                 
                 ClientHandler clientHandler = new ClientHandler(socket);
-                clients.add(clientHandler);
-                clientHandler.start();
+                handlerExecutor.execute(clientHandler);
                 
-                assignToGameSession(clientHandler);
+                addClient(clientHandler);
             }
         } catch (IOException e) {
             System.out.println("❌ Server error: " + e.getMessage());
         }
     }
     
-    private static void assignToGameSession(ClientHandler client) {
-        for (GameSession session : gameSessions) {
-            if (session.isWaitingForPlayer()) {
-                session.addPlayer(client);
-                return;
-            }
+    // Virtual threads arrived in Java 21, so look the factory up instead of linking against it
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("🧵 Running player handlers on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("⚠️ Virtual threads need Java 21+, using platform threads instead");
+            return Executors.newCachedThreadPool();
         }
-        
-        GameSession newSession = new GameSession();
-        newSession.addPlayer(client);
-        gameSessions.add(newSession);
     }
     
-    public static void removeClient(ClientHandler client) {
-        clients.remove(client);
-        System.out.println("🚪 Player left. Remaining: " + clients.size());
-        
-        // Remove empty game sessions
-        gameSessions.removeIf(session -> session.getPlayerCount() == 0);
-    }
-}
-
-class ClientHandler extends Thread {
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private String playerName;
-    private GameSession gameSession;
-    private String lastResponse;
+    private static long lastMessages = 0;
+    private static long lastFlushes = 0;
     
-    public ClientHandler(Socket socket) {
-        this.socket = socket;
-        try {
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-        } catch (IOException e) {
-            System.out.println("❌ Error setting up player: " + e.getMessage());
+    private static void logOutboundStats() {
+        long messages = ClientHandler.getMessagesSent();
+        long flushes = ClientHandler.getFlushCount();
+        if (flushes > lastFlushes) {
+            System.out.printf("📊 %d messages in %d flushes (%.2f per flush)%n",
+                messages - lastMessages, flushes - lastFlushes,
+                (double) (messages - lastMessages) / (flushes - lastFlushes));
         }
+        lastMessages = messages;
+        lastFlushes = flushes;
     }
     
-    public void run() {
-        try {
-            playerName = in.readLine();
-            System.out.println("👋 " + playerName + " joined!");
-            
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                if (gameSession != null) {
-                    gameSession.processMessage(this, inputLine);
-                }
-            }
-        } catch (IOException e) {
-            System.out.println("⚠️ " + playerName + " disconnected!");
-        } finally {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                System.out.println("❌ Error closing socket.");
-            }
-            GameServer.removeClient(this);
-            if (gameSession != null) {
-                gameSession.removePlayer(this);
-            }
+    static void addClient(ClientHandler client) {
+        clients.add(client);
+        if (idleReaper != null) {
+            idleReaper.watch(client);
         }
     }
     
-    public void sendMessage(String message) {
-        out.println(message);
-    }
-    
-    public String getPlayerName() {
-        return playerName;
-    }
-    
-    public void setGameSession(GameSession session) {
-        this.gameSession = session;
-    }
-    
-    public void setLastResponse(String response) {
-        this.lastResponse = response;
-    }
-    
-    public String getLastResponse() {
-        return lastResponse;
-    }
-}
-
-class GameSession {
-    private List<ClientHandler> players;
-    private String gameType;
-    private GameLogic gameLogic;
-    
-    public GameSession() {
-        players = new ArrayList<>(2);
-    }
-    
-    public boolean isWaitingForPlayer() {
-        return players.size() < 2;
-    }
-    
-    public int getPlayerCount() {
-        return players.size();
-    }
-    
-    public void addPlayer(ClientHandler player) {
-        players.add(player);
-        player.setGameSession(this);
+    private static void assignToGameSession(ClientHandler client) {
+        matchmaker.assign(client);
+    }
+    
+    // The first line from a connection is the player's name, or
+    // RESUME:<token>:<name> from a player whose connection dropped mid-match.
+    // Only then is the connection matched, so a resuming player never passes
+    // through matchmaking.
+    static void login(ClientHandler client, String line) {
+        String token = null;
+        String name = line;
+        if (line.startsWith("RESUME:")) {
+            int colon = line.indexOf(':', "RESUME:".length());
+            token = colon < 0 ? line.substring("RESUME:".length()) : line.substring("RESUME:".length(), colon);
+            name = colon < 0 ? "Player" : line.substring(colon + 1);
+        }
+        client.setPlayerName(name);
+        client.sendMessage("RESUME_TOKEN:" + ResumeTokens.issue(client));
         
-        if (players.size() == 1) {
-            player.sendMessage("WAITING:Waiting for another player...");
-        } else if (players.size() == 2) {
-            broadcast("GAME_READY:Choose a game: RPS (Rock-Paper-Scissors), TTT (Tic-Tac-Toe), or DICE (Dice Roll Battle)");
+        ClientHandler previous = token == null ? null : ResumeTokens.claim(token);
+        GameSession session = previous == null ? null : previous.getGameSession();
+        if (session != null) {
+            System.out.println("🔁 " + previous.getPlayerName() + " is resuming");
+            session.resumeSeat(previous, client);
+            return;
         }
-    }
-    
-    public void removePlayer(ClientHandler player) {
-        players.remove(player);
-        if (!players.isEmpty()) {
-            players.get(0).sendMessage("OPPONENT_LEFT:Opponent left. Waiting for new player...");
+        if (token != null) {
+            client.sendMessage("ERROR:Your seat was not kept, finding you a new match");
         }
-        if (gameLogic != null) {
-            gameLogic = null;
+        System.out.println("👋 " + name + " joined!");
+        assignToGameSession(client);
+    }
+    
+    // RANK asks for the player's own ratings, TOP or TOP:<game> for the leaders
+    static void ratings(ClientHandler client, String line) {
+        Leaderboard leaderboard = matchmaker.getLeaderboard();
+        if (leaderboard == null) {
+            client.sendMessage("ERROR:Ratings are not kept on this server");
+        } else if (line.equals("RANK")) {
+            leaderboard.sendRatings(client);
+        } else {
+            leaderboard.sendTop(client, line.startsWith("TOP:") ? WireCodec.gameId(line.substring("TOP:".length())) : 0);
         }
     }
     
-    public void processMessage(ClientHandler sender, String message) {
-        if (message.startsWith("CHOOSE_GAME:")) {
-            gameType = message.substring("CHOOSE_GAME:".length());
-            startGame();
-        } else if (gameLogic != null) {
-            gameLogic.processMove(sender, message);
+    // QUEUE:<game> gives up the client's seat and waits for a rated opponent
+    // who queued for the same game; see SkillMatcher
+    static void queue(ClientHandler client, String gameType) {
+        int gameId = WireCodec.gameId(gameType);
+        if (!GameEngines.isRegistered(gameId)) {
+            client.sendMessage("ERROR:Unknown game " + gameType);
+            return;
+        }
+        GameSession current = client.getGameSession();
+        if (current != null) {
+            current.removePlayer(client);
+            client.setGameSession(null);
         }
+        client.setSpectator(false);
+        matchmaker.getSkillMatcher().enqueue(client, gameId);
     }
     
-    private void startGame() {
-        gameLogic = new GameLogic(players, gameType);
-        gameLogic.startGame();
+    // Gives up the client's seat and attaches it to a running match as a
+    // watcher. An empty id picks any match that is being played.
+    static void spectate(ClientHandler client, String sessionId) {
+        GameSession target = matchmaker.findSession(sessionId);
+        if (target == null) {
+            client.sendMessage("ERROR:No match to watch" + (sessionId.isEmpty() ? "" : " with id " + sessionId));
+            return;
+        }
+        GameSession current = client.getGameSession();
+        if (current == target) {
+            return;
+        }
+        if (current != null) {
+            current.removePlayer(client);
+        }
+        matchmaker.getSkillMatcher().cancel(client);
+        target.addSpectator(client);
     }
     
-    public void broadcast(String message) {
-        for (ClientHandler player : players) {
-            player.sendMessage(message);
-        }
+    public static void removeClient(ClientHandler client) {
+        clients.remove(client);
+        System.out.println("🚪 Player left. Remaining: " + clients.size());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,382 @@
+// GameSession.java
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Each session is an actor: everything that touches its players or game state
+// is posted to the mailbox and run by exactly one pool thread at a time, so
+// GameLogic never needs locks and many sessions share a handful of cores.
+class GameSession implements Executor {
+    private static final int DRAIN_BATCH = 64;
+    private static final String GAME_READY = "GAME_READY:Choose a game: RPS (Rock-Paper-Scissors), TTT (Tic-Tac-Toe), GOMOKU (15x15 Five in a Row), or DICE (Dice Roll Battle)";
+    private static final ExecutorService ACTOR_POOL = new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(),
+        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    
+    private final int id = NEXT_ID.getAndIncrement();
+    private final Matchmaker matchmaker;
+    // Derived from the server seed and the id, so the same seed replays the same rolls
+    private final long seed;
+    private final SplittableRandom random;
+    private final Executor pool;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    
+    // Seat bookkeeping for the matchmaker, guarded by this
+    private int seats = 0;
+    private boolean closed = false;
+    // The bot timer of the current wait for an opponent, and a count of
+    // waits so a timer from an earlier one does nothing if it still fires
+    private ScheduledFuture<?> botTimer;
+    private int waits = 0;
+    
+    // Confined to the mailbox
+    private List<ClientHandler> players;
+    private final List<ClientHandler> spectators = new ArrayList<>();
+    // Seats whose connection dropped, each held until its timer runs out
+    private final Map<ClientHandler, ScheduledFuture<?>> away = new HashMap<>();
+    private GameLogic gameLogic;
+    // WireCodec id of the game being played, 0 for none; read by ServerMetrics
+    private volatile int gameId = 0;
+    
+    public GameSession(Matchmaker matchmaker) {
+        this(matchmaker, ACTOR_POOL);
+    }
+    
+    public GameSession(Matchmaker matchmaker, Executor pool) {
+        this.matchmaker = matchmaker;
+        this.pool = pool;
+        this.seed = matchmaker.seedFor(id);
+        this.random = new SplittableRandom(seed);
+        players = new ArrayList<>(2);
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public synchronized boolean isWaitingForPlayer() {
+        return !closed && seats < 2;
+    }
+    
+    public synchronized int getPlayerCount() {
+        return seats;
+    }
+    
+    public int getGameId() {
+        return gameId;
+    }
+    
+    // Claims a seat atomically; fails once the session is full or has been abandoned
+    public synchronized boolean tryAddPlayer(ClientHandler player) {
+        if (closed || seats >= 2) {
+            return false;
+        }
+        seats++;
+        if (seats == 2) {
+            cancelBotTimer();
+        }
+        player.setGameSession(this);
+        execute(() -> addPlayer(player));
+        return true;
+    }
+    
+    // A new wait for an opponent; whatever timer the last wait left is cancelled
+    public synchronized void scheduleBot(Runnable seatBot, long delayMillis) {
+        cancelBotTimer();
+        int wait = ++waits;
+        botTimer = GameScheduler.schedule(() -> {
+            if (isCurrentWait(wait)) {
+                seatBot.run();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    private synchronized boolean isCurrentWait(int wait) {
+        return wait == waits;
+    }
+    
+    private void cancelBotTimer() {
+        waits++;
+        if (botTimer != null) {
+            botTimer.cancel(false);
+            botTimer = null;
+        }
+    }
+    
+    // Takes back the only seat of a session that left the queue before anyone
+    // else could join it, so the matchmaker can move the player elsewhere
+    public synchronized void abandon(ClientHandler player) {
+        seats = 0;
+        closed = true;
+        cancelBotTimer();
+        matchmaker.sessionClosed(this);
+        execute(() -> players.remove(player));
+    }
+    
+    private void addPlayer(ClientHandler player) {
+        players.add(player);
+        
+        if (players.size() == 1) {
+            player.sendMessage("WAITING:Waiting for another player...");
+        } else if (players.size() == 2) {
+            System.out.println("🎲 Match " + id + ": " + players.get(0).getPlayerName() + " vs " + players.get(1).getPlayerName()
+                               + " (seed " + Long.toHexString(seed) + ")");
+            broadcast(GAME_READY);
+        }
+    }
+    
+    // Both seats at once, for a pair the SkillMatcher found; the game they
+    // queued for starts without asking them to choose
+    public synchronized void seatPair(ClientHandler first, ClientHandler second, int requested) {
+        seats = 2;
+        first.setGameSession(this);
+        second.setGameSession(this);
+        execute(() -> {
+            players.add(first);
+            players.add(second);
+            System.out.println("🎯 Match " + id + ": " + first.getPlayerName() + " vs " + second.getPlayerName()
+                               + " at " + WireCodec.gameName(requested) + " (seed " + Long.toHexString(seed) + ")");
+            startGame(requested);
+        });
+    }
+    
+    // Watchers never hold a seat, so they can come and go even once the session is full
+    public void addSpectator(ClientHandler spectator) {
+        spectator.setSpectator(true);
+        spectator.setGameSession(this);
+        execute(() -> {
+            spectators.add(spectator);
+            spectator.sendMessage("SPECTATING:" + id + ":" + spectators.size() + " watching");
+            if (gameLogic != null) {
+                gameLogic.sendStateTo(spectator);
+            }
+        });
+    }
+    
+    public synchronized void removePlayer(ClientHandler player) {
+        if (player.isSpectator()) {
+            execute(() -> spectators.remove(player));
+            return;
+        }
+        if (closed || seats == 0) {
+            return;
+        }
+        seats--;
+        // Queued before any requeue below, so a replacement is seated after the leave
+        execute(() -> playerLeft(player));
+        if (seats == 0) {
+            closed = true;
+            cancelBotTimer();
+            matchmaker.sessionClosed(this);
+        } else {
+            matchmaker.requeue(this);
+        }
+    }
+    
+    // With two players seated a dropped connection keeps its seat for the
+    // grace period, so the game survives a reconnect; otherwise it leaves
+    public void playerDisconnected(ClientHandler player) {
+        long grace = matchmaker.getResumeGraceMillis();
+        if (player.isSpectator() || grace <= 0) {
+            ResumeTokens.revoke(player);
+            removePlayer(player);
+            return;
+        }
+        execute(() -> {
+            if (!players.contains(player) || away.containsKey(player)) {
+                return; // Its seat was already taken over, or is already held
+            }
+            if (players.size() < 2) {
+                ResumeTokens.revoke(player);
+                removePlayer(player);
+                return;
+            }
+            away.put(player, GameScheduler.schedule(() -> execute(() -> seatExpired(player)), grace, TimeUnit.MILLISECONDS));
+            notifyOthers(player, new OutboundMessage("WAIT:" + player.getPlayerName() + " lost connection, holding their seat for "
+                                                     + TimeUnit.MILLISECONDS.toSeconds(grace) + "s..."));
+        });
+    }
+    
+    private void seatExpired(ClientHandler player) {
+        if (away.remove(player) != null) {
+            ResumeTokens.revoke(player);
+            removePlayer(player);
+        }
+    }
+    
+    // Hands the previous connection's seat to the new one and sends the whole
+    // game state in one RESUMED message. The previous connection may still
+    // look alive if it has not noticed the drop yet; it is cut off here.
+    public void resumeSeat(ClientHandler previous, ClientHandler client) {
+        execute(() -> {
+            int seat = players.indexOf(previous);
+            if (seat < 0) {
+                client.sendMessage("ERROR:Your seat was not kept, finding you a new match");
+                matchmaker.assign(client);
+                return;
+            }
+            ScheduledFuture<?> expiry = away.remove(previous);
+            if (expiry != null) {
+                expiry.cancel(false);
+            } else {
+                previous.setGameSession(null);
+                previous.disconnect();
+            }
+            client.setPlayerName(previous.getPlayerName());
+            client.setLastResponse(previous.getLastResponse());
+            client.setGameSession(this);
+            players.set(seat, client);
+            if (client.isDisconnected()) {
+                // Dropped again before it got here; hold the seat once more
+                playerDisconnected(client);
+                return;
+            }
+            
+            List<String> lines = new ArrayList<>();
+            if (gameLogic != null) {
+                gameLogic.appendResumeState(seat, lines);
+            } else {
+                lines.add(GAME_READY);
+            }
+            client.sendMessage("RESUMED:" + String.join(String.valueOf(WireCodec.RESUME_SEPARATOR), lines));
+            notifyOthers(client, new OutboundMessage("WAIT:" + client.getPlayerName() + " is back"));
+            
+            // Then put the other player's own status line back
+            if (gameLogic != null) {
+                ClientHandler other = players.get(1 - seat);
+                String status = gameLogic.statusFor(1 - seat);
+                if (status != null && !away.containsKey(other)) {
+                    other.sendMessage(status);
+                }
+            }
+        });
+    }
+    
+    // The remaining player (if connected) and every spectator
+    private void notifyOthers(ClientHandler player, OutboundMessage message) {
+        for (ClientHandler other : players) {
+            if (other != player && !away.containsKey(other)) {
+                other.send(message);
+            }
+        }
+        for (ClientHandler spectator : spectators) {
+            spectator.send(message);
+        }
+    }
+    
+    private void playerLeft(ClientHandler player) {
+        if (!players.remove(player)) {
+            return;
+        }
+        if (!players.isEmpty()) {
+            players.get(0).sendMessage("OPPONENT_LEFT:Opponent left. Waiting for new player...");
+        }
+        if (!spectators.isEmpty()) {
+            OutboundMessage notice = new OutboundMessage(players.isEmpty()
+                ? "SESSION_END:The match is over"
+                : "WAITING:A player left. Waiting for a new one...");
+            for (ClientHandler spectator : spectators) {
+                spectator.send(notice);
+            }
+        }
+        // Nobody connected is left to play a dropped player, so their seat goes too
+        if (!players.isEmpty() && away.keySet().containsAll(players)) {
+            for (ClientHandler held : new ArrayList<>(players)) {
+                away.remove(held).cancel(false);
+                ResumeTokens.revoke(held);
+                removePlayer(held);
+            }
+        }
+        if (gameLogic != null) {
+            gameLogic.cancelTimers();
+            gameLogic = null;
+            MatchJournal journal = matchmaker.getJournal();
+            if (journal != null) {
+                journal.gameEnded(id);
+            }
+        }
+        gameId = 0;
+    }
+    
+    public void processMessage(ClientHandler sender, String message) {
+        long receivedAt = ServerMetrics.messageReceived();
+        execute(() -> {
+            handleMessage(sender, message);
+            // Stops the clock once the replies are flushed, not just queued
+            int game = gameId;
+            OutboundBatch.afterFlush(() -> ServerMetrics.messageHandled(game, receivedAt));
+        });
+    }
+    
+    private void handleMessage(ClientHandler sender, String message) {
+        if (!players.contains(sender)) {
+            return;
+        }
+        if (message.startsWith("CHOOSE_GAME:")) {
+            String gameType = message.substring("CHOOSE_GAME:".length());
+            int requested = WireCodec.gameId(gameType);
+            if (!GameEngines.isRegistered(requested)) {
+                sender.sendMessage("ERROR:Unknown game " + gameType);
+            } else if (players.size() == 2) {
+                startGame(requested);
+            }
+        } else if (gameLogic != null) {
+            gameLogic.processMove(sender, message);
+        }
+    }
+    
+    // Only the chosen game's engine is created
+    private void startGame(int requested) {
+        if (gameLogic != null) {
+            gameLogic.cancelTimers();
+        }
+        gameLogic = new GameLogic(players, spectators, requested, this, random);
+        gameId = requested;
+        MatchJournal journal = matchmaker.getJournal();
+        if (journal != null) {
+            journal.gameStarted(id, seed, requested, players.get(0).getPlayerName(), players.get(1).getPlayerName());
+            gameLogic.setRecorder(journal.recorderFor(id));
+        }
+        gameLogic.setLeaderboard(matchmaker.getLeaderboard());
+        gameLogic.startGame();
+    }
+    
+    public void broadcast(String message) {
+        OutboundMessage encoded = new OutboundMessage(message);
+        for (ClientHandler player : players) {
+            player.send(encoded);
+        }
+    }
+    
+    // Mailbox entry point; also handed to GameLogic for its delayed messages
+    public void execute(Runnable task) {
+        mailbox.add(task);
+        if (scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+    
+    private void drain() {
+        Runnable task;
+        int budget = DRAIN_BATCH;
+        while (budget-- > 0 && (task = mailbox.poll()) != null) {
+            try {
+                OutboundBatch.run(task);
+            } catch (RuntimeException e) {
+                System.out.println("❌ Session error: " + e);
+            }
+        }
+        scheduled.set(false);
+        // Either the batch ran out or something arrived after the last poll
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            pool.execute(this::drain);
+        }
+    }
+}
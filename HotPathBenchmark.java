@@ -0,0 +1,297 @@
+// HotPathBenchmark.java
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+// Times the server and client hot paths without sockets: GameLogic moves for
+// every game, the board win check, session message dispatch, client-side
+// message parsing and matchmaking with many sessions already open. Players
+// are stubs that only encode what they are sent, so the numbers cover the
+// game code and message building but not the network.
+//   java HotPathBenchmark [filter] [--iterations=5] [--millis=1000]
+// The same cases run under JMH with mvn package && java -jar target/benchmarks.jar
+public class HotPathBenchmark {
+    private static final String[] SERVER_MESSAGES = {
+        "GAME_START:TTT:You are X - Your turn!",
+        "SCORE:3:2",
+        "BOARD:XO-X-O--X",
+        "TURN:Your turn (X)",
+        "WAIT:Opponent's turn (O)",
+        "DICE_ROLL:4:6",
+        "TURN:alice's turn! You have 2 rolls left!",
+        "WINNER:alice wins!",
+        "GAME_OVER:Play again? (YES/NO)"
+    };
+
+    // Keeps the JIT from dropping the work
+    private static long sink;
+    // The server's own console logging is muted while cases run
+    private static final PrintStream report = System.out;
+
+    private final int iterations;
+    private final long iterationMillis;
+
+    HotPathBenchmark(int iterations, long iterationMillis) {
+        this.iterations = iterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    public static void main(String[] args) {
+        String filter = "";
+        int iterations = 5;
+        long millis = 1000;
+        for (String arg : args) {
+            if (arg.startsWith("--iterations=")) iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            else if (arg.startsWith("--millis=")) millis = Long.parseLong(arg.substring("--millis=".length()));
+            else filter = arg.toLowerCase();
+        }
+        HotPathBenchmark bench = new HotPathBenchmark(iterations, millis);
+        Map<String, Supplier<Runnable>> cases = cases();
+
+        report.println("⏱️ " + iterations + " x " + millis + " ms per case after one warmup pass");
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (Map.Entry<String, Supplier<Runnable>> entry : cases.entrySet()) {
+            if (entry.getKey().toLowerCase().contains(filter)) {
+                bench.measure(entry.getKey(), entry.getValue().get());
+            }
+        }
+        if (sink == 42) report.println();
+    }
+
+    private static Map<String, Supplier<Runnable>> cases() {
+        Map<String, Supplier<Runnable>> cases = new LinkedHashMap<>();
+        cases.put("processMove RPS", HotPathBenchmark::rpsRound);
+        cases.put("processMove TTT", () -> boardGame("TTT", new int[] {0, 3, 1, 4, 2}));
+        cases.put("processMove GOMOKU", () -> boardGame("GOMOKU", new int[] {0, 15, 1, 16, 2, 17, 3, 18, 4}));
+        cases.put("processMove DICE", HotPathBenchmark::diceGame);
+        cases.put("isWinningMove TTT", () -> winCheck("TTT", new int[] {0, 4, 8, 2}));
+        cases.put("isWinningMove GOMOKU", () -> winCheck("GOMOKU", new int[] {112, 113, 127, 98, 142, 96, 97, 126}));
+        cases.put("processMessage dispatch", HotPathBenchmark::sessionDispatch);
+        cases.put("client parse", HotPathBenchmark::clientParse);
+        for (int sessions : new int[] {10, 1_000, 100_000}) {
+            cases.put("assign pair @" + sessions + " sessions", () -> matchmaking(sessions));
+        }
+        cases.put("rate+rank @1000000 players", () -> ratingIndex(1_000_000));
+        cases.put("skill match pass @2000 queued", () -> skillMatch(2_000));
+        return cases;
+    }
+
+    // One case, set up and ready to run; the JMH suite in hotpath/ reaches the
+    // cases through this, since a named package cannot refer to these classes
+    public static Runnable newCase(String name) {
+        Supplier<Runnable> factory = cases().get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("No benchmark case " + name);
+        }
+        return factory.get();
+    }
+
+    // Runs the op in timed batches, reports the mean and best ns per op
+    private void measure(String name, Runnable op) {
+        long batch = 1;
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            for (long i = 0; i < batch; i++) {
+                op.run();
+            }
+            batch = Math.min(batch * 2, 1 << 20);
+        }
+
+        double[] nsPerOp = new double[iterations];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            long ops = 0;
+            long start = System.nanoTime();
+            long end = start + iterationMillis * 1_000_000L;
+            long now;
+            do {
+                for (int i = 0; i < 256; i++) {
+                    op.run();
+                }
+                ops += 256;
+            } while ((now = System.nanoTime()) < end);
+            nsPerOp[iteration] = (double) (now - start) / ops;
+        }
+
+        double total = 0;
+        double best = Double.MAX_VALUE;
+        for (double ns : nsPerOp) {
+            total += ns;
+            best = Math.min(best, ns);
+        }
+        report.printf("   %-32s %10.1f ns/op  (best %.1f)%n", name, total / nsPerOp.length, best);
+    }
+
+    private static List<ClientHandler> pair() {
+        return new ArrayList<>(List.of(new StubPlayer("alice"), new StubPlayer("bob")));
+    }
+
+    // One throw each, then both agree to play again
+    private static Runnable rpsRound() {
+        List<ClientHandler> players = pair();
+        GameLogic logic = new GameLogic(players, "RPS");
+        logic.startGame();
+        ClientHandler first = players.get(0);
+        ClientHandler second = players.get(1);
+        return () -> {
+            logic.processMove(first, "R");
+            logic.processMove(second, "S");
+            logic.processMove(first, "YES");
+            logic.processMove(second, "YES");
+        };
+    }
+
+    // Plays the moves alternately (the first player wins on the last one) and replays
+    private static Runnable boardGame(String gameType, int[] moves) {
+        List<ClientHandler> players = pair();
+        GameLogic logic = new GameLogic(players, gameType);
+        logic.startGame();
+        String[] encoded = new String[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            encoded[i] = String.valueOf(moves[i]);
+        }
+        return () -> {
+            for (int i = 0; i < encoded.length; i++) {
+                logic.processMove(players.get(i & 1), encoded[i]);
+            }
+            logic.processMove(players.get(0), "YES");
+            logic.processMove(players.get(1), "YES");
+        };
+    }
+
+    private static Runnable diceGame() {
+        List<ClientHandler> players = pair();
+        GameLogic logic = new GameLogic(players, "DICE");
+        logic.startGame();
+        return () -> {
+            for (int i = 0; i < 6; i++) {
+                logic.processMove(players.get(i / 3), "ROLL");
+            }
+            logic.processMove(players.get(0), "YES");
+            logic.processMove(players.get(1), "YES");
+        };
+    }
+
+    // Win check for the last stone of a mid-game position
+    private static Runnable winCheck(String gameType, int[] moves) {
+        TTTBoard board = TTTBoard.forGame(gameType);
+        for (int i = 0; i < moves.length; i++) {
+            board.place(moves[i], i & 1);
+        }
+        int last = moves[moves.length - 1];
+        int player = (moves.length - 1) & 1;
+        return () -> {
+            if (board.isWinningMove(last, player)) sink++;
+        };
+    }
+
+    // The full inbound path on a session whose mailbox runs inline
+    private static Runnable sessionDispatch() {
+        GameSession session = new GameSession(new Matchmaker(), Runnable::run);
+        ClientHandler first = new StubPlayer("alice");
+        ClientHandler second = new StubPlayer("bob");
+        session.tryAddPlayer(first);
+        session.tryAddPlayer(second);
+        session.processMessage(first, "CHOOSE_GAME:RPS");
+        return () -> {
+            session.processMessage(first, "P");
+            session.processMessage(second, "R");
+            session.processMessage(first, "YES");
+            session.processMessage(second, "YES");
+        };
+    }
+
+    // What GameClient does with each line before it touches Swing
+    private static Runnable clientParse() {
+        ClientProtocol.Listener listener = new ClientProtocol.Listener() {
+            @Override
+            public void onGameStart(String gameType, String message) {
+                sink += gameType.length() + message.length();
+            }
+
+            @Override
+            public void onScore(int first, int second) {
+                sink += first + second;
+            }
+
+            @Override
+            public void onBoard(String cells) {
+                sink += cells.length();
+            }
+
+            @Override
+            public void onDiceRoll(int first, int second) {
+                sink += first + second;
+            }
+
+            @Override
+            public void onTurn(String message) {
+                sink += message.length();
+            }
+        };
+        return () -> {
+            for (String message : SERVER_MESSAGES) {
+                ClientProtocol.dispatch(message, listener);
+            }
+        };
+    }
+
+    // Moves one player up and down a full board, as a rated round does
+    private static Runnable ratingIndex(int players) {
+        RatingIndex index = new RatingIndex();
+        Random random = new Random(7);
+        double[] ratings = new double[players];
+        for (int i = 0; i < players; i++) {
+            ratings[i] = 1500 + random.nextGaussian() * 200;
+        }
+        Arrays.sort(ratings);
+        for (int i = players - 1; i >= 0; i--) {
+            index.append("p" + i, ratings[i], 30);
+        }
+        String name = "p" + players / 2;
+        double[] swing = {ratings[players / 2] + 20, ratings[players / 2] - 20};
+        int[] round = {0};
+        return () -> {
+            RatingIndex.Node node = index.update(name, swing[round[0]++ & 1], 31);
+            sink += index.rankOf(node);
+        };
+    }
+
+    // One matcher pass over a fresh batch of arrivals spread over every game
+    private static Runnable skillMatch(int queued) {
+        SkillMatcher matcher = new SkillMatcher(new Matchmaker());
+        Random random = new Random(11);
+        long now = System.nanoTime();
+        ClientHandler[] players = new ClientHandler[queued];
+        double[] ratings = new double[queued];
+        long[] queuedAt = new long[queued];
+        for (int i = 0; i < queued; i++) {
+            players[i] = new StubPlayer("q" + i);
+            ratings[i] = 1500 + random.nextGaussian() * 200;
+            queuedAt[i] = now - random.nextInt(10_000) * 1_000_000L;
+        }
+        return () -> {
+            for (int i = 0; i < queued; i++) {
+                matcher.arrive(new SkillMatcher.Ticket(players[i], 1 + i % 4, ratings[i], queuedAt[i]));
+            }
+            sink += matcher.match(now).size();
+        };
+    }
+
+    // Two joins that open and then fill a session, with the given number of
+    // full sessions already open
+    private static Runnable matchmaking(int sessions) {
+        Matchmaker matchmaker = new Matchmaker();
+        for (int i = 0; i < sessions * 2; i++) {
+            matchmaker.assign(new StubPlayer("p" + i));
+        }
+        ClientHandler first = new StubPlayer("alice");
+        ClientHandler second = new StubPlayer("bob");
+        return () -> {
+            matchmaker.assign(first);
+            matchmaker.assign(second);
+            // Leave so the session count stays where it started
+            first.getGameSession().removePlayer(first);
+            second.getGameSession().removePlayer(second);
+        };
+    }
+}
@@ -0,0 +1,104 @@
+// IdleReaper.java
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Closes connections the server has not heard from for the idle timeout, so
+// a client that vanished without a FIN (lid closed, NAT entry dropped) stops
+// holding a thread, a seat and its buffers. Live clients send PING when they
+// have nothing else to say.
+//
+// Connections sit in a hashed timing wheel: one slot per tick, each holding
+// the connections whose deadline falls in that tick modulo the wheel size.
+// Reading a line only stamps the connection; nothing moves in the wheel until
+// its slot comes round, when it is closed or filed again under its new
+// deadline. A busy connection costs one timestamp per line and one look per
+// timeout, and the tick only ever closes sockets, so a peer that stopped
+// reading can never stall the shared timer thread.
+public class IdleReaper {
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final Queue<ClientHandler>[] wheel = newWheel();
+    private final long idleNanos;
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    // Next slot to expire; written by the scheduler thread only
+    private volatile long tick = 0;
+    private final LongAdder reaped = new LongAdder();
+
+    public IdleReaper(long idleMillis) {
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<ClientHandler>[] newWheel() {
+        Queue<ClientHandler>[] slots = (Queue<ClientHandler>[]) new Queue<?>[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        return slots;
+    }
+
+    public void start() {
+        GameScheduler.scheduleAtFixedRate(this::expireSlot, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        System.out.println("💤 Closing connections idle for " + TimeUnit.NANOSECONDS.toSeconds(idleNanos) + "s");
+    }
+
+    // Called once per connection as it is accepted
+    public void watch(ClientHandler client) {
+        file(client, tick, idleNanos);
+    }
+
+    public long getReapedCount() {
+        return reaped.sum();
+    }
+
+    // Deadlines past the end of the wheel wrap round and are simply looked at again
+    private void file(ClientHandler client, long fromTick, long remainingNanos) {
+        long ticks = Math.max(1, Math.min(WHEEL_SIZE, (remainingNanos + tickNanos - 1) / tickNanos));
+        wheel[(int) ((fromTick + ticks) & MASK)].add(client);
+    }
+
+    private void expireSlot() {
+        try {
+            long current = tick;
+            Queue<ClientHandler> slot = wheel[(int) (current & MASK)];
+            tick = current + 1;
+
+            // Taken out first, so a connection filed back into this slot waits a full turn
+            List<ClientHandler> due = new ArrayList<>();
+            ClientHandler client;
+            while ((client = slot.poll()) != null) {
+                due.add(client);
+            }
+
+            long now = System.nanoTime();
+            int closed = 0;
+            for (ClientHandler candidate : due) {
+                try {
+                    if (candidate.isDisconnected()) {
+                        continue; // Gone on its own; just forget it
+                    }
+                    long remaining = candidate.getLastHeard() + idleNanos - now;
+                    if (remaining > 0) {
+                        file(candidate, current, remaining);
+                    } else {
+                        candidate.disconnect();
+                        closed++;
+                    }
+                } catch (RuntimeException e) {
+                    // One bad connection must not strand the rest of the slot
+                    System.out.println("❌ Reaper error on a connection: " + e);
+                }
+            }
+            if (closed > 0) {
+                reaped.add(closed);
+                System.out.println("💤 Closed " + closed + " idle connection" + (closed == 1 ? "" : "s"));
+            }
+        } catch (RuntimeException e) {
+            // An escaped exception would silently cancel the fixed-rate task
+            System.out.println("❌ Reaper error: " + e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+// LatencyHistogram.java
+import java.util.concurrent.atomic.*;
+
+// Lock-free log-linear histogram in the style of HdrHistogram: every power of
+// two is split into 16 linear sub-buckets, so any recorded value is kept to
+// within about 6% using a thousand or so counters. Counts are striped across
+// a few arrays by thread so concurrent recorders rarely share a cache line.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        int stripe = (int) Thread.currentThread().getId() & (stripes.length - 1);
+        stripes[stripe].incrementAndGet(bucketOf(value));
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // Largest value that lands in the bucket
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    // Merged counts per bucket; a consistent enough view while recorders run
+    public long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (long count : snapshot()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // Value below which the given fraction (0..1) of recordings fall
+    public long getPercentile(double fraction) {
+        return percentileOf(snapshot(), fraction);
+    }
+
+    static long percentileOf(long[] counts, double fraction) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(total * fraction));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return upperBoundOf(i);
+        }
+        return upperBoundOf(counts.length - 1);
+    }
+}
@@ -0,0 +1,418 @@
+// Leaderboard.java
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+import java.util.zip.*;
+
+// Elo ratings per game, kept across sessions and restarts. Every finished
+// round between two people moves both players' ratings; bots are not rated.
+// Sessions only queue the result. One worker thread applies it to the
+// game's RatingIndex, appends the new ratings to a write-ahead log and then
+// tells both players where they stand. Rank and top-K queries run on the
+// same thread, so the index needs no locks.
+//
+// On disk, in the --ratings directory:
+//   ratings.snapshot  every rating, in rank order, with a CRC32 at the end
+//   ratings.wal       ratings changed since the snapshot, each record CRC'd
+// Log records hold the new rating, not the result, so replaying one twice is
+// harmless. A restart loads the snapshot straight onto the end of each index
+// and replays the log. Once the log passes COMPACT_AFTER_RECORDS records, or
+// on shutdown, a fresh snapshot is written and the log is emptied.
+public class Leaderboard {
+    static final double INITIAL_RATING = 1500;
+    // New players move faster until their rating has settled
+    private static final int PROVISIONAL_GAMES = 30;
+    private static final double PROVISIONAL_K = 40;
+    private static final double SETTLED_K = 20;
+    private static final int TOP_COUNT = 10;
+    // Longer names do not fit the on-disk format and are not rated
+    private static final int MAX_NAME_LENGTH = 1000;
+
+    private static final long FORCE_INTERVAL_MILLIS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int COMPACT_AFTER_RECORDS = 1_000_000;
+    private static final int SNAPSHOT_MAGIC = 0x454C4F31; // "ELO1"
+    private static final String SNAPSHOT = "ratings.snapshot";
+    private static final String LOG = "ratings.wal";
+
+    private final Path directory;
+    private final Map<Integer, RatingIndex> games = new TreeMap<>();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean closed = false;
+
+    // Worker thread only, once started
+    private FileChannel logChannel;
+    private DataOutputStream log;
+    private long logRecords = 0;
+    private boolean logDirty = false;
+    private long lastForce = System.currentTimeMillis();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(64);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private Leaderboard(Path directory) {
+        this.directory = directory;
+        worker = new Thread(this::workLoop, "leaderboard");
+        worker.setDaemon(true);
+    }
+
+    public static Leaderboard open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Leaderboard leaderboard = new Leaderboard(directory);
+        long start = System.nanoTime();
+        int loaded = leaderboard.loadSnapshot();
+        long replayed = leaderboard.replayLog();
+        leaderboard.worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(leaderboard::close, "leaderboard-close"));
+        System.out.println("🏆 Loaded " + loaded + " ratings and " + replayed + " log records from "
+                           + directory.toAbsolutePath() + " in "
+                           + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return leaderboard;
+    }
+
+    // ---- Called from session mailboxes and connection threads ----
+
+    // winner is a seat, or -1 for a draw
+    public void roundFinished(int gameId, ClientHandler first, ClientHandler second, int winner) {
+        String firstName = first.getPlayerName();
+        String secondName = second.getPlayerName();
+        if (first instanceof BotPlayer || second instanceof BotPlayer || firstName.equals(secondName)
+            || firstName.length() > MAX_NAME_LENGTH || secondName.length() > MAX_NAME_LENGTH) {
+            return;
+        }
+        submit(() -> rate(gameId, first, firstName, second, secondName, winner));
+    }
+
+    // A RATING line per game the player has played, with no change
+    public void sendRatings(ClientHandler client) {
+        String name = client.getPlayerName();
+        submit(() -> {
+            boolean any = false;
+            for (Map.Entry<Integer, RatingIndex> game : games.entrySet()) {
+                RatingIndex.Node node = game.getValue().get(name);
+                if (node != null) {
+                    client.sendMessage(ratingLine(game.getKey(), game.getValue(), node, 0));
+                    any = true;
+                }
+            }
+            if (!any) {
+                client.sendMessage("ERROR:No rated games yet");
+            }
+        });
+    }
+
+    // Hands the player's rating in the game, or INITIAL_RATING, to the callback on the worker thread
+    public void lookupRating(String name, int gameId, DoubleConsumer callback) {
+        submit(() -> {
+            RatingIndex index = games.get(gameId);
+            RatingIndex.Node node = index == null ? null : index.get(name);
+            callback.accept(node == null ? INITIAL_RATING : node.rating);
+        });
+    }
+
+    // LEADERBOARD:<game>:<entry><US><entry>... for one game, or every game played when gameId is 0
+    public void sendTop(ClientHandler client, int gameId) {
+        submit(() -> {
+            for (Map.Entry<Integer, RatingIndex> game : games.entrySet()) {
+                if (gameId == 0 || game.getKey() == gameId) {
+                    client.sendMessage(topLine(game.getKey(), game.getValue()));
+                }
+            }
+            if (gameId != 0 && !games.containsKey(gameId)) {
+                client.sendMessage("LEADERBOARD:" + WireCodec.gameName(gameId) + ":");
+            }
+        });
+    }
+
+    // Writes a snapshot so the next start has no log to replay
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        LockSupport.unpark(worker);
+    }
+
+    // ---- Worker thread ----
+
+    private void workLoop() {
+        try {
+            openLog();
+        } catch (IOException e) {
+            System.out.println("❌ Rating log not opened, ratings will not be saved: " + e.getMessage());
+        }
+        while (true) {
+            boolean stopping = closed;
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.out.println("❌ Leaderboard task failed: " + e);
+                }
+            }
+            try {
+                syncLog(stopping);
+                if (stopping || logRecords >= COMPACT_AFTER_RECORDS) {
+                    compact();
+                }
+            } catch (IOException e) {
+                System.out.println("❌ Rating log write failed: " + e.getMessage());
+            }
+            if (stopping) {
+                return;
+            }
+            long sinceForce = System.currentTimeMillis() - lastForce;
+            LockSupport.parkNanos(logDirty
+                ? TimeUnit.MILLISECONDS.toNanos(Math.max(1, FORCE_INTERVAL_MILLIS - sinceForce))
+                : IDLE_PARK_NANOS);
+        }
+    }
+
+    private void rate(int gameId, ClientHandler first, String firstName, ClientHandler second, String secondName,
+                      int winner) {
+        RatingIndex index = games.computeIfAbsent(gameId, id -> new RatingIndex());
+        RatingIndex.Node a = index.get(firstName);
+        RatingIndex.Node b = index.get(secondName);
+        double ratingA = a == null ? INITIAL_RATING : a.rating;
+        double ratingB = b == null ? INITIAL_RATING : b.rating;
+        int gamesA = a == null ? 0 : a.games;
+        int gamesB = b == null ? 0 : b.games;
+
+        double expectedA = 1 / (1 + Math.pow(10, (ratingB - ratingA) / 400));
+        double scoreA = winner == 0 ? 1 : winner == 1 ? 0 : 0.5;
+        double newA = ratingA + kFactor(gamesA) * (scoreA - expectedA);
+        double newB = ratingB + kFactor(gamesB) * (expectedA - scoreA);
+
+        a = index.update(firstName, newA, gamesA + 1);
+        b = index.update(secondName, newB, gamesB + 1);
+        appendLog(gameId, a);
+        appendLog(gameId, b);
+        first.sendMessage(ratingLine(gameId, index, a, (int) Math.round(newA) - (int) Math.round(ratingA)));
+        second.sendMessage(ratingLine(gameId, index, b, (int) Math.round(newB) - (int) Math.round(ratingB)));
+    }
+
+    private static double kFactor(int gamesPlayed) {
+        return gamesPlayed < PROVISIONAL_GAMES ? PROVISIONAL_K : SETTLED_K;
+    }
+
+    // RATING:<game>:<rating>:<change>:<rank>:<players>
+    private static String ratingLine(int gameId, RatingIndex index, RatingIndex.Node node, int change) {
+        return "RATING:" + WireCodec.gameName(gameId) + ":" + Math.round(node.rating) + ":" + change + ":"
+               + index.rankOf(node) + ":" + index.size();
+    }
+
+    private static String topLine(int gameId, RatingIndex index) {
+        StringBuilder line = new StringBuilder(32 + TOP_COUNT * 24);
+        line.append("LEADERBOARD:").append(WireCodec.gameName(gameId)).append(':');
+        RatingIndex.Node node = index.atRank(1);
+        for (int rank = 1; rank <= TOP_COUNT && node != null; rank++, node = node.next[0]) {
+            if (rank > 1) {
+                line.append(WireCodec.ENTRY_SEPARATOR);
+            }
+            line.append(rank).append(". ").append(node.name).append(' ').append(Math.round(node.rating));
+        }
+        return line.toString();
+    }
+
+    // ---- Write-ahead log ----
+
+    // Record: int length, payload, int CRC32 of the payload
+    // Payload: byte game id, double rating, int games, unsigned short name length, UTF-8 name
+    private void appendLog(int gameId, RatingIndex.Node node) {
+        if (log == null) {
+            return;
+        }
+        try {
+            recordBytes.reset();
+            writeEntry(record, gameId, node);
+            byte[] payload = recordBytes.toByteArray();
+            crc.reset();
+            crc.update(payload);
+            log.writeInt(payload.length);
+            log.write(payload);
+            log.writeInt((int) crc.getValue());
+            logRecords++;
+            logDirty = true;
+        } catch (IOException e) {
+            System.out.println("❌ Rating log write failed: " + e.getMessage());
+        }
+    }
+
+    // Group commit: one force covers every result applied in the interval
+    private void syncLog(boolean now) throws IOException {
+        if (!logDirty) {
+            return;
+        }
+        log.flush();
+        long time = System.currentTimeMillis();
+        if (now || time - lastForce >= FORCE_INTERVAL_MILLIS) {
+            logChannel.force(false);
+            logDirty = false;
+            lastForce = time;
+        }
+    }
+
+    private void openLog() throws IOException {
+        logChannel = FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        logChannel.position(logChannel.size());
+        log = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(logChannel), 64 * 1024));
+    }
+
+    // Reads every intact record; a torn or damaged tail is cut off so new records follow good ones
+    private long replayLog() throws IOException {
+        Path file = directory.resolve(LOG);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long replayed = 0;
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            CRC32 check = new CRC32();
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > 0xFFFF + 16) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                int stored;
+                try {
+                    in.readFully(payload);
+                    stored = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                check.reset();
+                check.update(payload);
+                if ((int) check.getValue() != stored) {
+                    break;
+                }
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(payload));
+                int gameId = entry.readUnsignedByte();
+                double rating = entry.readDouble();
+                int played = entry.readInt();
+                String name = entry.readUTF();
+                games.computeIfAbsent(gameId, id -> new RatingIndex()).update(name, rating, played);
+                good += 4 + length + 4;
+                replayed++;
+            }
+        }
+        long size = Files.size(file);
+        if (good < size) {
+            System.out.println("⚠️ Rating log had " + (size - good) + " damaged bytes at the end, dropped them");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+            }
+        }
+        logRecords = replayed;
+        return replayed;
+    }
+
+    // ---- Snapshot ----
+
+    // Written beside the old one and renamed over it, then the log is emptied.
+    // A crash in between leaves the new snapshot and an old log, which replays harmlessly.
+    private void compact() throws IOException {
+        if (logRecords == 0 && Files.exists(directory.resolve(SNAPSHOT))) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path temp = directory.resolve(SNAPSHOT + ".tmp");
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(games.size());
+            for (Map.Entry<Integer, RatingIndex> game : games.entrySet()) {
+                RatingIndex index = game.getValue();
+                out.writeByte(game.getKey());
+                out.writeInt(index.size());
+                for (RatingIndex.Node node = index.atRank(1); node != null; node = node.next[0]) {
+                    out.writeDouble(node.rating);
+                    out.writeInt(node.games);
+                    out.writeUTF(node.name);
+                    written++;
+                }
+            }
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        if (logChannel != null) {
+            log.flush();
+            logChannel.truncate(0);
+            logChannel.position(0);
+            logChannel.force(true);
+        }
+        logRecords = 0;
+        logDirty = false;
+        System.out.println("🏆 Snapshot of " + written + " ratings written in "
+                           + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    // Ratings arrive in rank order, so each goes straight onto the end of its index
+    private int loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int loaded = 0;
+        try (CheckedInputStream checked = new CheckedInputStream(
+                 new BufferedInputStream(Files.newInputStream(file), 256 * 1024), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + " is not a rating snapshot");
+            }
+            int gameCount = in.readInt();
+            for (int g = 0; g < gameCount; g++) {
+                int gameId = in.readUnsignedByte();
+                int players = in.readInt();
+                RatingIndex index = games.computeIfAbsent(gameId, id -> new RatingIndex());
+                for (int i = 0; i < players; i++) {
+                    double rating = in.readDouble();
+                    int played = in.readInt();
+                    index.append(in.readUTF(), rating, played);
+                    loaded++;
+                }
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException(file + " is damaged (checksum mismatch)");
+            }
+        }
+        return loaded;
+    }
+
+    private static void writeEntry(DataOutputStream out, int gameId, RatingIndex.Node node) throws IOException {
+        out.writeByte(gameId);
+        out.writeDouble(node.rating);
+        out.writeInt(node.games);
+        out.writeUTF(node.name);
+    }
+}
@@ -0,0 +1,570 @@
+// LoadGenerator.java
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Headless stand-in for GameClient that opens many connections to a server
+// and plays real games on all of them, reporting games per second, the
+// latency from sending a move to the server's first reply, and errors.
+//   java LoadGenerator [host] [--port=5555] [--clients=1000] [--seconds=60] [--think=200]
+//                      [--game=RPS|TTT|DICE|MIX] [--binary] [--silent=0]
+//                      [--idle=0] [--metrics=<server metrics port>]
+// --silent=N also opens N connections that log in and then go quiet without
+// closing, like clients that vanished, and reports when the server drops them.
+// --idle=N opens N connections that log in and only heartbeat, the soak test
+// for what a parked player costs; with --metrics it reports the server's heap
+// and live thread count before and after. Use --clients=0 for clean numbers.
+public class LoadGenerator {
+    private static final String[] GAMES = {"RPS", "TTT", "DICE"};
+    // Keeps players who are waiting for a match from looking idle
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final String host;
+    private final int port;
+    private final String game;
+    private final long thinkMillis;
+    private final boolean binary;
+
+    private final ScheduledExecutorService thinker = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "load-think");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder movesSent = new LongAdder();
+    private final LongAdder protocolErrors = new LongAdder();
+    private final LongAdder connectionErrors = new LongAdder();
+    private final AtomicInteger connected = new AtomicInteger();
+
+    public LoadGenerator(String host, int port, String game, long thinkMillis, boolean binary) {
+        this.host = host;
+        this.port = port;
+        this.game = game;
+        this.thinkMillis = thinkMillis;
+        this.binary = binary;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 5555;
+        int clients = 1000;
+        int seconds = 60;
+        long think = 200;
+        String game = "MIX";
+        boolean binary = false;
+        int silent = 0;
+        int idle = 0;
+        int metricsPort = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) port = Integer.parseInt(arg.substring("--port=".length()));
+            else if (arg.startsWith("--clients=")) clients = Integer.parseInt(arg.substring("--clients=".length()));
+            else if (arg.startsWith("--seconds=")) seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            else if (arg.startsWith("--think=")) think = Long.parseLong(arg.substring("--think=".length()));
+            else if (arg.startsWith("--game=")) game = arg.substring("--game=".length()).toUpperCase();
+            else if (arg.equals("--binary")) binary = true;
+            else if (arg.startsWith("--silent=")) silent = Integer.parseInt(arg.substring("--silent=".length()));
+            else if (arg.startsWith("--idle=")) idle = Integer.parseInt(arg.substring("--idle=".length()));
+            else if (arg.startsWith("--metrics=")) metricsPort = Integer.parseInt(arg.substring("--metrics=".length()));
+            else host = arg;
+        }
+        LoadGenerator generator = new LoadGenerator(host, port, game, think, binary);
+        SilentClients quiet = silent > 0 ? new SilentClients(host, port, silent) : null;
+        IdleClients parked = idle > 0 ? new IdleClients(host, port, idle, metricsPort) : null;
+        generator.run(clients, seconds, quiet, parked);
+    }
+
+    public void run(int clients, int seconds, SilentClients quiet, IdleClients parked) throws InterruptedException {
+        System.out.println("🚀 " + clients + " clients, " + game + ", think " + thinkMillis + " ms"
+                           + (binary ? ", binary protocol" : ""));
+        List<LoadClient> all = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            LoadClient client = new LoadClient("load-" + i);
+            all.add(client);
+            // Small stacks: these threads only ever block in a socket read
+            Thread thread = new Thread(null, client, "load-" + i, 256 * 1024);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        if (quiet != null) {
+            quiet.start();
+        }
+        if (parked != null) {
+            parked.start();
+        }
+
+        long start = System.nanoTime();
+        long lastGames = 0;
+        for (int elapsed = 5; elapsed <= seconds; elapsed += 5) {
+            Thread.sleep(5000);
+            long games = gamesFinished.sum() / 2; // both players see every result
+            System.out.printf("⏳ %3ds  connected %d  games %d (%.1f/s)  p50 %.2f ms  p99 %.2f ms  errors %d%s%s%n",
+                              elapsed, connected.get(), games, (games - lastGames) / 5.0,
+                              moveLatency.getPercentile(0.50) / 1e6, moveLatency.getPercentile(0.99) / 1e6,
+                              protocolErrors.sum() + connectionErrors.sum(),
+                              quiet == null ? "" : "  silent closed " + quiet.getClosedCount() + "/" + quiet.getCount(),
+                              parked == null ? "" : parked.status());
+            lastGames = games;
+        }
+
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        for (LoadClient client : all) {
+            client.close();
+        }
+        long games = gamesFinished.sum() / 2;
+        System.out.println("📊 Summary");
+        System.out.printf("   games        %d (%.1f/s)%n", games, games / totalSeconds);
+        System.out.printf("   moves        %d (%.1f/s)%n", movesSent.sum(), movesSent.sum() / totalSeconds);
+        System.out.printf("   move->reply  p50 %.2f ms  p99 %.2f ms  max %.2f ms%n",
+                          moveLatency.getPercentile(0.50) / 1e6, moveLatency.getPercentile(0.99) / 1e6,
+                          moveLatency.getMax() / 1e6);
+        System.out.printf("   errors       %d protocol, %d connection%n",
+                          protocolErrors.sum(), connectionErrors.sum());
+        if (quiet != null) {
+            quiet.report();
+        }
+        if (parked != null) {
+            parked.report();
+        }
+    }
+
+    // One simulated player. Reads on its own thread and answers through the
+    // shared ClientProtocol dispatch, scheduling its replies on the thinker.
+    private class LoadClient implements Runnable, ClientProtocol.Listener {
+        private final String name;
+        private Socket socket;
+        private OutputStream out;
+        // Set right before a move goes out; the next server line clears it
+        private volatile long moveSentAt = 0;
+        private volatile boolean closing = false;
+
+        // Only touched by the reader thread
+        private boolean chooser = false;
+        private String currentGame;
+        private String board;
+
+        LoadClient(String name) {
+            this.name = name;
+        }
+
+        public void run() {
+            try {
+                socket = new Socket(host, port);
+                socket.setTcpNoDelay(true);
+                out = new BufferedOutputStream(socket.getOutputStream());
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                connected.incrementAndGet();
+
+                send(name);
+                if (binary) {
+                    send(WireCodec.HANDSHAKE);
+                }
+                thinker.scheduleAtFixedRate(() -> send("PING"), HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+
+                boolean frames = false;
+                while (true) {
+                    String message;
+                    if (frames) {
+                        byte[] frame = WireCodec.readFrame(in);
+                        if (frame == null) break;
+                        message = WireCodec.decodeServerMessage(frame, 0, frame.length);
+                    } else {
+                        message = readLine(in);
+                        if (message == null) break;
+                        if (message.equals(WireCodec.HANDSHAKE_OK)) {
+                            frames = true;
+                            continue;
+                        }
+                    }
+                    if (message.equals("PONG") || message.startsWith("RATING:")) {
+                        continue; // Not a reply to any move
+                    }
+
+                    long sentAt = moveSentAt;
+                    if (sentAt != 0) {
+                        moveLatency.record(System.nanoTime() - sentAt);
+                        moveSentAt = 0;
+                    }
+                    ClientProtocol.dispatch(message, this);
+                }
+            } catch (IOException e) {
+                if (!closing) {
+                    connectionErrors.increment();
+                }
+            } finally {
+                if (out != null) connected.decrementAndGet();
+            }
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            if (b == -1 && line.size() == 0) return null;
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        private synchronized void send(String line) {
+            try {
+                out.write(binary && !line.equals(name) && !line.equals(WireCodec.HANDSHAKE)
+                          ? WireCodec.encodeClientMessage(line)
+                          : (line + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (IOException e) {
+                if (!closing) {
+                    connectionErrors.increment();
+                }
+            }
+        }
+
+        private void moveLater(String move) {
+            thinker.schedule(() -> {
+                movesSent.increment();
+                moveSentAt = System.nanoTime();
+                send(move);
+            }, thinkMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void chooseGame() {
+            String choice = game.equals("MIX") ? GAMES[ThreadLocalRandom.current().nextInt(GAMES.length)] : game;
+            thinker.schedule(() -> send("CHOOSE_GAME:" + choice), thinkMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void close() {
+            closing = true;
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException e) {
+                // Shutting down anyway
+            }
+        }
+
+        // The player who was waiting first picks the game
+        @Override
+        public void onWaiting(String message) {
+            chooser = true;
+        }
+
+        @Override
+        public void onOpponentLeft(String message) {
+            chooser = true;
+            currentGame = null;
+        }
+
+        @Override
+        public void onGameReady(String message) {
+            if (chooser) chooseGame();
+        }
+
+        @Override
+        public void onSessionEnd(String message) {
+            currentGame = null;
+            if (chooser) chooseGame();
+        }
+
+        @Override
+        public void onGameStart(String gameType, String message) {
+            currentGame = gameType;
+            if (gameType.equals("RPS")) {
+                moveLater(new String[] {"R", "P", "S"}[ThreadLocalRandom.current().nextInt(3)]);
+            } else if (gameType.equals("DICE") && message.startsWith(name + "'s turn")) {
+                moveLater("ROLL");
+            }
+        }
+
+        @Override
+        public void onBoard(String cells) {
+            board = cells;
+        }
+
+        @Override
+        public void onTurn(String message) {
+            if ("DICE".equals(currentGame)) {
+                if (message.startsWith(name + "'s turn")) moveLater("ROLL");
+            } else if (board != null) {
+                List<Integer> empty = new ArrayList<>();
+                for (int i = 0; i < board.length(); i++) {
+                    if (board.charAt(i) == '-') empty.add(i);
+                }
+                if (!empty.isEmpty()) {
+                    moveLater(String.valueOf(empty.get(ThreadLocalRandom.current().nextInt(empty.size()))));
+                }
+            }
+        }
+
+        @Override
+        public void onGameResult(String result) {
+            gamesFinished.increment();
+            board = null;
+        }
+
+        @Override
+        public void onGameOver(String message) {
+            thinker.schedule(() -> send("YES"), thinkMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onError(String message) {
+            protocolErrors.increment();
+        }
+    }
+}
+
+// Connections that log in and then never send another byte, standing in for
+// clients that disappeared without closing. They still read, only to notice
+// the server closing them; the server only goes by what it hears.
+class SilentClients implements Runnable {
+    private final String host;
+    private final int port;
+    private final int count;
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    // Shortest and longest time from login until the server closed the connection
+    private volatile long shortestLife = Long.MAX_VALUE;
+    private volatile long longestLife = 0;
+    private volatile long startedAt;
+
+    SilentClients(String host, int port, int count) {
+        this.host = host;
+        this.port = port;
+        this.count = count;
+    }
+
+    void start() {
+        Thread thread = new Thread(this, "silent-clients");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getClosedCount() {
+        return closed.get();
+    }
+
+    // Closes are picked up while the rest are still being opened, so each
+    // lifetime is measured from that connection's own login
+    public void run() {
+        try (Selector selector = Selector.open()) {
+            startedAt = System.nanoTime();
+            ByteBuffer discard = ByteBuffer.allocate(16 * 1024);
+            int next = 0;
+            while (next < count || closed.get() < opened.get()) {
+                if (next < count) {
+                    SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+                    channel.write(ByteBuffer.wrap(("silent-" + next + "\n").getBytes(StandardCharsets.UTF_8)));
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ, System.nanoTime());
+                    opened.incrementAndGet();
+                    if (++next == count) {
+                        System.out.printf("🤐 %d silent connections open after %.1f s%n", count, (System.nanoTime() - startedAt) / 1e9);
+                    }
+                    selector.selectNow();
+                } else {
+                    selector.select(1000);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    int read;
+                    try {
+                        discard.clear();
+                        read = channel.read(discard);
+                    } catch (IOException e) {
+                        read = -1;
+                    }
+                    if (read < 0) {
+                        key.cancel();
+                        channel.close();
+                        long life = System.nanoTime() - (Long) key.attachment();
+                        shortestLife = Math.min(shortestLife, life);
+                        longestLife = Math.max(longestLife, life);
+                        closed.incrementAndGet();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Silent connections stopped after " + opened.get() + ": " + e.getMessage());
+        }
+    }
+
+    void report() {
+        if (closed.get() == 0) {
+            System.out.printf("   silent       0/%d closed by the server%n", opened.get());
+            return;
+        }
+        System.out.printf("   silent       %d/%d closed by the server, %.1f to %.1f s after login%n",
+                          closed.get(), opened.get(), shortestLife / 1e9, longestLife / 1e9);
+    }
+}
+
+// Connections that log in and then only send a PING now and then, so the
+// server keeps them however long the run lasts. They all share one selector
+// thread, so the generator itself stays small at 100k connections. One
+// client address runs out of ports at about 28k connections to the same
+// server, so against a loopback server they are spread over the source
+// addresses 127.0.0.1, 127.0.0.2, ... (all of 127/8 is local on Linux).
+class IdleClients implements Runnable {
+    private static final int PER_SOURCE_ADDRESS = 25_000;
+    private static final long PING_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final String host;
+    private final int port;
+    private final int count;
+    private final int metricsPort;
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private volatile double openSeconds = 0;
+    // Server numbers before the first connection: platform threads, heap used, heap after GC
+    private long[] before;
+
+    IdleClients(String host, int port, int count, int metricsPort) {
+        this.host = host;
+        this.port = port;
+        this.count = count;
+        this.metricsPort = metricsPort;
+    }
+
+    void start() {
+        before = ServerStats.fetch(host, metricsPort);
+        Thread thread = new Thread(this, "idle-clients");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void run() {
+        ByteBuffer discard = ByteBuffer.allocate(16 * 1024);
+        ByteBuffer ping = ByteBuffer.wrap("PING\n".getBytes(StandardCharsets.UTF_8));
+        List<SocketChannel> channels = new ArrayList<>(count);
+        try (Selector selector = Selector.open()) {
+            InetAddress target = InetAddress.getByName(host);
+            boolean spread = target.isLoopbackAddress() && target instanceof Inet4Address;
+            long startedAt = System.nanoTime();
+            long nextPing = startedAt + PING_NANOS;
+            int next = 0;
+            while (true) {
+                if (next < count) {
+                    SocketChannel channel = SocketChannel.open();
+                    if (spread) {
+                        channel.bind(new InetSocketAddress("127.0.0." + (1 + next / PER_SOURCE_ADDRESS), 0));
+                    }
+                    channel.connect(new InetSocketAddress(target, port));
+                    channel.write(ByteBuffer.wrap(("idle-" + next + "\n").getBytes(StandardCharsets.UTF_8)));
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ);
+                    channels.add(channel);
+                    open.incrementAndGet();
+                    if (++next == count) {
+                        openSeconds = (System.nanoTime() - startedAt) / 1e9;
+                        System.out.printf("🔌 %d idle connections open after %.1f s%n", count, openSeconds);
+                    }
+                    selector.selectNow();
+                } else {
+                    selector.select(1000);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    int read;
+                    try {
+                        discard.clear();
+                        read = channel.read(discard);
+                    } catch (IOException e) {
+                        read = -1;
+                    }
+                    if (read < 0) {
+                        key.cancel();
+                        channel.close();
+                        open.decrementAndGet();
+                        dropped.incrementAndGet();
+                    }
+                }
+                if (System.nanoTime() - nextPing >= 0) {
+                    for (SocketChannel channel : channels) {
+                        if (channel.isOpen()) {
+                            try {
+                                channel.write(ping.rewind());
+                            } catch (IOException e) {
+                                // Noticed as a close on the next read
+                            }
+                        }
+                    }
+                    nextPing += PING_NANOS;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Idle connections stopped after " + open.get() + ": " + e.getMessage());
+        }
+    }
+
+    String status() {
+        long[] now = ServerStats.fetch(host, metricsPort);
+        return "  idle open " + open.get() + "/" + count
+               + (now == null ? "" : String.format("  server threads %d heap %.0f MB", now[0], now[1] / 1e6));
+    }
+
+    void report() {
+        System.out.printf("   idle         %d/%d open%s, %d dropped by the server%n", open.get(), count,
+                          openSeconds > 0 ? String.format(" after %.1f s", openSeconds) : "", dropped.get());
+        long[] after = ServerStats.fetch(host, metricsPort);
+        if (before == null || after == null) {
+            System.out.println("   server       pass --metrics=<port> for the server's heap and threads");
+            return;
+        }
+        double connections = Math.max(1, open.get());
+        System.out.printf("   server       threads %d -> %d (%+.3f per connection)%n",
+                          before[0], after[0], (after[0] - before[0]) / connections);
+        System.out.printf("   server       heap used %.1f -> %.1f MB (%+.1f KB per connection)%n",
+                          before[1] / 1e6, after[1] / 1e6, (after[1] - before[1]) / connections / 1e3);
+        if (after[2] == 0) {
+            System.out.println("   server       heap after GC not known yet, nothing has been collected");
+        } else {
+            System.out.printf("   server       heap after GC %.1f -> %.1f MB (%+.1f KB per connection)%n",
+                              before[2] / 1e6, after[2] / 1e6, (after[2] - before[2]) / connections / 1e3);
+        }
+    }
+}
+
+// Reads the server's own thread and heap gauges off its metrics endpoint
+class ServerStats {
+    private static final String[] GAUGES = {"game_jvm_threads", "game_jvm_heap_used_bytes", "game_jvm_heap_after_gc_bytes"};
+
+    // Null without a metrics port or when the server does not answer
+    static long[] fetch(String host, int metricsPort) {
+        if (metricsPort <= 0) {
+            return null;
+        }
+        try {
+            HttpURLConnection http = (HttpURLConnection) new URL("http://" + host + ":" + metricsPort + "/metrics").openConnection();
+            http.setConnectTimeout(2000);
+            http.setReadTimeout(2000);
+            long[] values = new long[GAUGES.length];
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(http.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    for (int i = 0; i < GAUGES.length; i++) {
+                        if (line.startsWith(GAUGES[i] + " ")) {
+                            values[i] = Long.parseLong(line.substring(GAUGES[i].length() + 1).trim());
+                        }
+                    }
+                }
+            }
+            return values;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
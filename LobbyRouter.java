@@ -0,0 +1,634 @@
+// LobbyRouter.java
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Front door for several GameServer processes. Clients connect here exactly
+// as they would to a single server, and each connection is piped to one
+// backend for its whole life; only the first line each way is looked at.
+// One selector thread does all the piping, so an idle player costs two
+// sockets and two buffers here, not two blocked threads.
+//
+// A session lives on one backend, so players are placed in pairs, the way
+// the matchmaker seats them. The first player of a pair is looked up by name
+// on a consistent-hash ring of backends: every backend owns many points on
+// the ring, so adding or removing one only moves the names that hashed to it,
+// and a player who comes back later lands where they played before.
+// The walk round the ring skips backends that are down and backends already
+// holding more than LOAD_FACTOR times their share of connections.
+// A player who is still waiting for an opponent on some backend, for example
+// because theirs left, takes priority over starting a new pair.
+//
+// Every backend's first line to a client is its resume token. The router
+// remembers which backend issued it, so a RESUME: login goes back there
+// whatever the ring says.
+//
+//   java LobbyRouter --backends=localhost:5601/9601,localhost:5602/9602 [--port=5555]
+//
+// The number after the slash is the backend's --metrics port. It is used for
+// health checks and for the backend's count of players waiting. A backend
+// given without one is marked down when a connection to it fails, and probed
+// with a plain connect until it answers again. Checks run on their own
+// thread, so a slow backend never holds up the piping.
+public class LobbyRouter {
+    private static final int VIRTUAL_NODES = 128;
+    private static final double LOAD_FACTOR = 1.25;
+    private static final long HEALTH_INTERVAL_MILLIS = 2000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int LOGIN_TIMEOUT_MILLIS = 30_000;
+    private static final int MAX_LINE_BYTES = 1024;
+    // How long after a connection closes its token still routes a RESUME:
+    private static final long TOKEN_GRACE_MILLIS = 120_000;
+    private static final int BUFFER_BYTES = 8192;
+    // How often logins and backend connects are checked for their timeouts
+    private static final long SWEEP_MILLIS = 250;
+
+    private final List<Backend> backends;
+    private final NavigableMap<Long, Backend> ring = new TreeMap<>();
+    private final Map<String, TokenRoute> tokens = new ConcurrentHashMap<>();
+
+    // Selector thread only
+    private Selector selector;
+    // Routes still logging in or connecting to their backend
+    private final Set<Route> awaiting = new LinkedHashSet<>();
+
+    // Pairing state, guarded by this
+    private Route pairFirst;
+    private Backend pairBackend;
+
+    LobbyRouter(List<Backend> backends) {
+        this.backends = backends;
+        for (Backend backend : backends) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(backend.name + "#" + i), backend);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = 5555;
+        List<Backend> backends = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--backends=")) {
+                for (String spec : arg.substring("--backends=".length()).split(",")) {
+                    backends.add(Backend.parse(spec.trim()));
+                }
+            }
+        }
+        if (backends.isEmpty()) {
+            System.out.println("Usage: java LobbyRouter --backends=host:port[/metricsPort],... [--port=5555]");
+            return;
+        }
+
+        LobbyRouter router = new LobbyRouter(backends);
+        router.startHealthChecks();
+        System.out.println("🔀 Lobby router on port " + port + " for " + backends.size() + " backends");
+        try {
+            router.serve(port);
+        } catch (IOException e) {
+            System.out.println("❌ Router error: " + e.getMessage());
+        }
+    }
+
+    // ---- Placement ----
+
+    // A new player joins the pair that is waiting for its second player,
+    // or a player already waiting on some backend, or starts the next pair
+    synchronized Backend placeNewPlayer(Route route) {
+        if (pairFirst != null && pairBackend.up) {
+            Backend backend = pairBackend;
+            pairFirst = null;
+            pairBackend = null;
+            return backend;
+        }
+        for (Backend backend : backends) {
+            if (backend.up && backend.waiting > 0) {
+                backend.waiting--;
+                return backend;
+            }
+        }
+        Backend backend = lookup(route.name);
+        pairFirst = backend == null ? null : route;
+        pairBackend = backend;
+        return backend;
+    }
+
+    // The first backend clockwise from the key that is up and under its
+    // bounded share of the load; the least loaded one if all are over
+    private Backend lookup(String key) {
+        int up = 0;
+        int total = 0;
+        for (Backend backend : backends) {
+            if (backend.up) {
+                up++;
+                total += backend.connections.get();
+            }
+        }
+        if (up == 0) {
+            return null;
+        }
+        int limit = (int) Math.ceil(LOAD_FACTOR * (total + 1) / up);
+
+        Backend fallback = null;
+        SortedMap<Long, Backend> tail = ring.tailMap(hash(key));
+        Iterator<Backend> clockwise = tail.values().iterator();
+        for (int seen = 0; seen < ring.size(); seen++) {
+            if (!clockwise.hasNext()) {
+                clockwise = ring.values().iterator();
+            }
+            Backend backend = clockwise.next();
+            if (!backend.up) {
+                continue;
+            }
+            if (backend.connections.get() < limit) {
+                return backend;
+            }
+            if (fallback == null || backend.connections.get() < fallback.connections.get()) {
+                fallback = backend;
+            }
+        }
+        return fallback;
+    }
+
+    private synchronized void forgetPair(Route route) {
+        if (pairFirst == route) {
+            pairFirst = null;
+            pairBackend = null;
+        }
+    }
+
+    // FNV-1a, then the SplitMix64 finalizer so nearby keys spread round the ring
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    // ---- Connections ----
+
+    private void serve(int port) throws IOException {
+        selector = Selector.open();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            long nextSweep = System.nanoTime();
+            while (true) {
+                selector.select(SWEEP_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(server);
+                        continue;
+                    }
+                    Route route = (Route) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            onConnectable(route);
+                        } else if (key.channel() == route.client) {
+                            if (key.isWritable()) route.flushToClient();
+                            if (key.isValid() && key.isReadable()) onClientReadable(route);
+                        } else {
+                            if (key.isWritable()) route.flushToBackend();
+                            if (key.isValid() && key.isReadable()) onBackendReadable(route);
+                        }
+                        route.updateInterest();
+                    } catch (IOException e) {
+                        // Either side went away; closing both is all there is to do
+                        route.close();
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    sweep(now);
+                    nextSweep = now + SWEEP_MILLIS * 1_000_000;
+                }
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            client.configureBlocking(false);
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Route route = new Route(client);
+            route.clientKey = client.register(selector, SelectionKey.OP_READ, route);
+            route.deadline = System.nanoTime() + LOGIN_TIMEOUT_MILLIS * 1_000_000L;
+            awaiting.add(route);
+        }
+    }
+
+    // Buffers the login line; anything the client sends after it stays
+    // buffered behind it and goes to the backend once connected
+    private void onClientReadable(Route route) throws IOException {
+        if (route.client.read(route.toBackend) < 0) {
+            route.flushToBackend();
+            route.close();
+            return;
+        }
+        if (route.state != Route.LOGIN) {
+            route.flushToBackend();
+            return;
+        }
+        int end = indexOfNewline(route.toBackend);
+        if (end < 0) {
+            if (route.toBackend.position() > MAX_LINE_BYTES) {
+                route.close();
+            }
+            return;
+        }
+        String login = new String(route.toBackend.array(), 0, end + 1, StandardCharsets.UTF_8).trim();
+        Backend backend = null;
+        if (login.startsWith("RESUME:")) {
+            int colon = login.indexOf(':', "RESUME:".length());
+            String token = colon < 0 ? login.substring("RESUME:".length()) : login.substring("RESUME:".length(), colon);
+            route.name = colon < 0 ? "" : login.substring(colon + 1);
+            TokenRoute previous = tokens.remove(token.trim());
+            if (previous != null && previous.backend.up) {
+                backend = previous.backend;
+            }
+        } else {
+            route.name = login;
+        }
+        connect(route, backend);
+    }
+
+    // A RESUME: login goes to the backend that issued the token, anything
+    // else is placed as a new player. A backend that cannot be reached is
+    // marked down and the player placed again.
+    private void connect(Route route, Backend backend) {
+        while (route.attempts++ <= backends.size()) {
+            if (backend == null) {
+                backend = placeNewPlayer(route);
+                if (backend == null) {
+                    break;
+                }
+            }
+            backend.connections.incrementAndGet();
+            route.backend = backend;
+            route.state = Route.CONNECTING;
+            route.deadline = System.nanoTime() + CONNECT_TIMEOUT_MILLIS * 1_000_000L;
+            boolean connectedAtOnce;
+            try {
+                SocketChannel channel = SocketChannel.open();
+                route.backendChannel = channel;
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                route.backendKey = channel.register(selector, SelectionKey.OP_CONNECT, route);
+                connectedAtOnce = channel.connect(backend.address);
+            } catch (IOException e) {
+                connectFailed(route, e.getMessage());
+                backend = null;
+                continue;
+            }
+            if (connectedAtOnce) {
+                try {
+                    connected(route);
+                } catch (IOException e) {
+                    route.close();
+                    return;
+                }
+            }
+            route.updateInterest();
+            return;
+        }
+        refuse(route);
+    }
+
+    private void onConnectable(Route route) throws IOException {
+        try {
+            if (!route.backendChannel.finishConnect()) {
+                return;
+            }
+        } catch (IOException e) {
+            connectFailed(route, e.getMessage());
+            connect(route, null);
+            return;
+        }
+        connected(route);
+    }
+
+    private void connected(Route route) throws IOException {
+        route.state = Route.PIPING;
+        awaiting.remove(route);
+        route.flushToBackend();
+    }
+
+    // Leaves the route ready for the next backend
+    private void connectFailed(Route route, String reason) {
+        Backend backend = route.backend;
+        route.closeBackend();
+        route.backend = null;
+        backend.connections.decrementAndGet();
+        forgetPair(route);
+        backend.markDown(reason);
+    }
+
+    // Best effort: the client has sent nothing it expects back yet, so the
+    // socket buffer has room for one line
+    private void refuse(Route route) {
+        try {
+            route.client.write(ByteBuffer.wrap(ClientHandler.encodeText("ERROR:No game server available, try again later")));
+        } catch (IOException e) {
+            // Gone already
+        }
+        route.close();
+    }
+
+    // The backend's first line is RESUME_TOKEN:<token>, always text; it is
+    // held back until whole so the token can be read
+    private void onBackendReadable(Route route) throws IOException {
+        if (route.backendChannel.read(route.toClient) < 0) {
+            route.flushToClient();
+            route.close();
+            return;
+        }
+        if (!route.tokenSeen) {
+            int end = indexOfNewline(route.toClient);
+            if (end >= 0) {
+                String line = new String(route.toClient.array(), 0, end + 1, StandardCharsets.UTF_8).trim();
+                if (line.startsWith("RESUME_TOKEN:")) {
+                    route.token = line.substring("RESUME_TOKEN:".length());
+                    tokens.put(route.token, new TokenRoute(route.backend));
+                }
+                route.tokenSeen = true;
+            } else if (route.toClient.hasRemaining()) {
+                return;
+            } else {
+                // No newline in a full buffer, so it is no token line
+                route.tokenSeen = true;
+            }
+        }
+        route.flushToClient();
+    }
+
+    // Position of the first newline among the bytes read so far, or -1
+    private static int indexOfNewline(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = 0; i < buffer.position(); i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Closes logins that never finished and gives up on backends that never answered
+    private void sweep(long now) {
+        for (Route route : new ArrayList<>(awaiting)) {
+            if (now - route.deadline < 0) {
+                continue;
+            }
+            if (route.state == Route.CONNECTING) {
+                connectFailed(route, "connect timed out");
+                connect(route, null);
+            } else {
+                route.close();
+            }
+        }
+    }
+
+    // ---- Health ----
+
+    private void startHealthChecks() {
+        Thread health = new Thread(() -> {
+            while (true) {
+                checkHealth();
+                try {
+                    Thread.sleep(HEALTH_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "router-health");
+        health.setDaemon(true);
+        health.start();
+    }
+
+    private void checkHealth() {
+        for (Backend backend : backends) {
+            if (backend.healthPort > 0) {
+                int reported = backend.checkHealth();
+                synchronized (this) {
+                    // The first player of the open pair is already counted by placeNewPlayer
+                    backend.waiting = Math.max(0, reported - (pairBackend == backend ? 1 : 0));
+                }
+            } else if (!backend.up) {
+                backend.probe();
+            }
+        }
+        long now = System.currentTimeMillis();
+        tokens.values().removeIf(route -> route.expiresAt < now);
+    }
+
+    // One GameServer behind the router
+    static class Backend {
+        final String name;
+        final InetSocketAddress address;
+        final int healthPort;
+        final AtomicInteger connections = new AtomicInteger();
+        volatile boolean up = true;
+        // Players waiting for an opponent at the last health check, less those
+        // sent a partner since; guarded by the router
+        int waiting = 0;
+
+        Backend(String host, int port, int healthPort) {
+            this.name = host + ":" + port;
+            this.address = new InetSocketAddress(host, port);
+            this.healthPort = healthPort;
+        }
+
+        // host:port or host:port/metricsPort
+        static Backend parse(String spec) {
+            int slash = spec.indexOf('/');
+            int healthPort = slash < 0 ? 0 : Integer.parseInt(spec.substring(slash + 1));
+            String hostPort = slash < 0 ? spec : spec.substring(0, slash);
+            int colon = hostPort.lastIndexOf(':');
+            return new Backend(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)), healthPort);
+        }
+
+        // GET /health answers "OK <connections> <waiting sessions>"; returns the waiting count
+        int checkHealth() {
+            try {
+                HttpURLConnection http = (HttpURLConnection) new URL(
+                    "http://" + address.getHostString() + ":" + healthPort + "/health").openConnection();
+                http.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                http.setReadTimeout(CONNECT_TIMEOUT_MILLIS);
+                String[] parts;
+                try (InputStream in = http.getInputStream()) {
+                    parts = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim().split(" ");
+                }
+                if (!parts[0].equals("OK")) {
+                    markDown("health check said " + parts[0]);
+                    return 0;
+                }
+                markUp();
+                return parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+            } catch (IOException | RuntimeException e) {
+                markDown(e.getMessage());
+                return 0;
+            }
+        }
+
+        void probe() {
+            try (Socket socket = new Socket()) {
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                markUp();
+            } catch (IOException e) {
+                // Still down
+            }
+        }
+
+        void markUp() {
+            if (!up) {
+                up = true;
+                System.out.println("✅ Backend " + name + " is back");
+            }
+        }
+
+        void markDown(String reason) {
+            if (up) {
+                up = false;
+                System.out.println("❌ Backend " + name + " is down: " + reason);
+            }
+        }
+    }
+
+    // One client connection and the backend connection it is piped to; only
+    // touched by the selector thread, apart from the pairing fields' lock
+    private class Route {
+        static final int LOGIN = 0;
+        static final int CONNECTING = 1;
+        static final int PIPING = 2;
+        static final int CLOSED = 3;
+
+        final SocketChannel client;
+        SelectionKey clientKey;
+        SocketChannel backendChannel;
+        SelectionKey backendKey;
+        // Both kept ready for reading into; whatever they hold is still to be written
+        final ByteBuffer toBackend = ByteBuffer.allocate(BUFFER_BYTES);
+        final ByteBuffer toClient = ByteBuffer.allocate(BUFFER_BYTES);
+        int state = LOGIN;
+        // Login or connect deadline, from System.nanoTime()
+        long deadline;
+        int attempts = 0;
+        String name = "";
+        Backend backend;
+        String token;
+        boolean tokenSeen = false;
+
+        Route(SocketChannel client) {
+            this.client = client;
+        }
+
+        void flushToBackend() throws IOException {
+            if (state == PIPING && toBackend.position() > 0) {
+                toBackend.flip();
+                backendChannel.write(toBackend);
+                toBackend.compact();
+            }
+        }
+
+        void flushToClient() throws IOException {
+            if (tokenSeen && toClient.position() > 0) {
+                toClient.flip();
+                client.write(toClient);
+                toClient.compact();
+            }
+        }
+
+        // Reads a side only while its buffer has room, and waits to write a
+        // side only while there is something left for it
+        void updateInterest() {
+            if (state == CLOSED) {
+                return;
+            }
+            int clientOps = 0;
+            if (state == LOGIN || (state == PIPING && toBackend.hasRemaining())) {
+                clientOps |= SelectionKey.OP_READ;
+            }
+            if (tokenSeen && toClient.position() > 0) {
+                clientOps |= SelectionKey.OP_WRITE;
+            }
+            clientKey.interestOps(clientOps);
+            if (state == CONNECTING) {
+                backendKey.interestOps(SelectionKey.OP_CONNECT);
+            } else if (state == PIPING) {
+                int backendOps = toClient.hasRemaining() ? SelectionKey.OP_READ : 0;
+                if (toBackend.position() > 0) {
+                    backendOps |= SelectionKey.OP_WRITE;
+                }
+                backendKey.interestOps(backendOps);
+            }
+        }
+
+        void closeBackend() {
+            if (backendKey != null) {
+                backendKey.cancel();
+                backendKey = null;
+            }
+            closeQuietly(backendChannel);
+            backendChannel = null;
+        }
+
+        void close() {
+            if (state == CLOSED) {
+                return;
+            }
+            state = CLOSED;
+            awaiting.remove(this);
+            if (clientKey != null) {
+                clientKey.cancel();
+            }
+            closeQuietly(client);
+            closeBackend();
+            forgetPair(this);
+            if (backend != null) {
+                backend.connections.decrementAndGet();
+            }
+            // The seat may be held for a while; keep routing its RESUME: until well after
+            TokenRoute tokenRoute = token == null ? null : tokens.get(token);
+            if (tokenRoute != null) {
+                tokenRoute.expiresAt = System.currentTimeMillis() + TOKEN_GRACE_MILLIS;
+            }
+        }
+
+        private void closeQuietly(Channel channel) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+
+    // Where a resume token was issued; kept while its connection is open and for a grace period after
+    private static class TokenRoute {
+        final Backend backend;
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        TokenRoute(Backend backend) {
+            this.backend = backend;
+        }
+    }
+}
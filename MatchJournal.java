@@ -0,0 +1,316 @@
+// MatchJournal.java
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.*;
+
+// Append-only record of every match: game starts, moves, everything broadcast
+// (rolls, boards, results, scores) and game ends. Game threads only queue an
+// entry; one writer thread encodes entries into memory-mapped segment files
+// and forces them to disk at most every FORCE_INTERVAL_MILLIS, so a move
+// never waits on the disk. The writer sleeps until an entry arrives or a
+// force is due, so an idle server never wakes it. MatchReplay reads the
+// segments back.
+//
+// Record layout, big-endian:
+//   int length (of what follows), byte type, int session, long epoch millis, payload
+//   START  long seed, byte game id, str first player, str second player
+//   MOVE   byte seat, str move
+//   OUTPUT str message
+//   END    (empty)
+// where str is an unsigned short byte count and UTF-8 bytes. A zero length
+// marks the unused tail of a segment.
+public class MatchJournal {
+    static final byte START = 1;
+    static final byte MOVE = 2;
+    static final byte OUTPUT = 3;
+    static final byte END = 4;
+
+    private static final int SEGMENT_BYTES = 16 << 20;
+    private static final long FORCE_INTERVAL_MILLIS = 50;
+    private static final int HEADER_BYTES = 4 + 1 + 4 + 8;
+    private static final String SEGMENT_PREFIX = "matches-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+    private volatile boolean closed = false;
+    // The writer is parked, or about to park once it finds the queue empty
+    private volatile boolean parked = false;
+
+    // Writer thread only
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private boolean dirty = false;
+    private long lastForce = System.currentTimeMillis();
+
+    private MatchJournal(Path directory, int firstSegment) throws IOException {
+        this.directory = directory;
+        this.segmentIndex = firstSegment;
+        this.segment = mapSegment(firstSegment);
+        writer = new Thread(this::writeLoop, "match-journal");
+        writer.setDaemon(true);
+    }
+
+    // Starts a new segment after any already in the directory; earlier runs are never overwritten
+    public static MatchJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing = segments(directory);
+        int next = existing.isEmpty() ? 1 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+        MatchJournal journal = new MatchJournal(directory, next);
+        journal.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "match-journal-close"));
+        System.out.println("📼 Journaling matches to " + directory.toAbsolutePath());
+        return journal;
+    }
+
+    // ---- Recording, called from session mailboxes ----
+
+    public void gameStarted(int session, long seed, int gameId, String first, String second) {
+        Entry entry = new Entry(START, session);
+        entry.seed = seed;
+        entry.value = gameId;
+        entry.text = first;
+        entry.second = second;
+        enqueue(entry);
+    }
+
+    public void gameEnded(int session) {
+        enqueue(new Entry(END, session));
+    }
+
+    // What GameLogic reports to for one session's game
+    public MatchRecorder recorderFor(int session) {
+        return new MatchRecorder() {
+            @Override
+            public void moved(int seat, String move) {
+                Entry entry = new Entry(MOVE, session);
+                entry.value = seat;
+                entry.text = move;
+                enqueue(entry);
+            }
+
+            @Override
+            public void broadcast(String message) {
+                Entry entry = new Entry(OUTPUT, session);
+                entry.text = message;
+                enqueue(entry);
+            }
+        };
+    }
+
+    // Only a parked writer needs waking; one that is busy will see the entry
+    private void enqueue(Entry entry) {
+        pending.add(entry);
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Writes out whatever is queued and forces it; later entries are dropped
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---- Writer thread ----
+
+    private void writeLoop() {
+        while (true) {
+            boolean stopping = closed;
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                try {
+                    append(entry);
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("❌ Journal write failed: " + e);
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (dirty && (stopping || now - lastForce >= FORCE_INTERVAL_MILLIS)) {
+                segment.force();
+                dirty = false;
+                lastForce = now;
+            }
+            if (stopping) {
+                return;
+            }
+            // Set before the last look at the queue, so an entry added after it gets an unpark
+            parked = true;
+            if (pending.isEmpty() && !closed) {
+                if (dirty) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(1, FORCE_INTERVAL_MILLIS - (now - lastForce))));
+                } else {
+                    LockSupport.park();
+                }
+            }
+            parked = false;
+        }
+    }
+
+    private void append(Entry entry) throws IOException {
+        byte[] text = utf8(entry.text);
+        byte[] second = utf8(entry.second);
+        int payload;
+        switch (entry.type) {
+            case START: payload = 8 + 1 + 2 + text.length + 2 + second.length; break;
+            case MOVE: payload = 1 + 2 + text.length; break;
+            case OUTPUT: payload = 2 + text.length; break;
+            default: payload = 0;
+        }
+        int size = HEADER_BYTES + payload;
+        // Keep at least four zero bytes after the record so readers see where the segment ends
+        if (segment.remaining() < size + 4) {
+            segment.force();
+            segment = mapSegment(++segmentIndex);
+        }
+
+        // The length goes in last, so a record cut off by a crash reads as the end
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put(entry.type).putInt(entry.session).putLong(entry.time);
+        switch (entry.type) {
+            case START:
+                segment.putLong(entry.seed).put((byte) entry.value);
+                putString(text);
+                putString(second);
+                break;
+            case MOVE:
+                segment.put((byte) entry.value);
+                putString(text);
+                break;
+            case OUTPUT:
+                putString(text);
+                break;
+            default:
+                break;
+        }
+        segment.putInt(start, size - 4);
+        dirty = true;
+    }
+
+    private void putString(byte[] bytes) {
+        segment.putShort((short) bytes.length).put(bytes);
+    }
+
+    // Long strings are cut to what the short length can describe
+    private static byte[] utf8(String s) {
+        if (s == null) {
+            return new byte[0];
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= 0xFFFF ? bytes : Arrays.copyOf(bytes, 0xFFFF);
+    }
+
+    private MappedByteBuffer mapSegment(int index) throws IOException {
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    // ---- Reading ----
+
+    // Every complete record in the directory, oldest segment first
+    public static void read(Path directory, Consumer<Entry> sink) throws IOException {
+        for (Path file : segments(directory)) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                sink.accept(decode(record));
+            }
+        }
+    }
+
+    private static Entry decode(ByteBuffer record) {
+        Entry entry = new Entry(record.get(), record.getInt(), record.getLong());
+        switch (entry.type) {
+            case START:
+                entry.seed = record.getLong();
+                entry.value = record.get();
+                entry.text = getString(record);
+                entry.second = getString(record);
+                break;
+            case MOVE:
+                entry.value = record.get();
+                entry.text = getString(record);
+                break;
+            case OUTPUT:
+                entry.text = getString(record);
+                break;
+            default:
+                break;
+        }
+        return entry;
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparingInt(MatchJournal::segmentNumber));
+        return files;
+    }
+
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // One record; which fields are used depends on the type
+    static class Entry {
+        final byte type;
+        final int session;
+        final long time;
+        long seed;
+        // Game id for START, seat for MOVE
+        int value;
+        // First player, move or message
+        String text;
+        // Second player for START
+        String second;
+
+        Entry(byte type, int session) {
+            this(type, session, System.currentTimeMillis());
+        }
+
+        Entry(byte type, int session, long time) {
+            this.type = type;
+            this.session = session;
+            this.time = time;
+        }
+    }
+}
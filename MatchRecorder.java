@@ -0,0 +1,12 @@
+// MatchRecorder.java
+// Where a GameLogic reports what happens in its game; NONE when nobody is listening
+interface MatchRecorder {
+    MatchRecorder NONE = new MatchRecorder() {
+    };
+
+    default void moved(int seat, String move) {
+    }
+
+    default void broadcast(String message) {
+    }
+}
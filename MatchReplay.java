@@ -0,0 +1,186 @@
+// MatchReplay.java
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Rebuilds matches from a MatchJournal directory. Each session's games are
+// played again through GameLogic with the journaled seed and moves, and what
+// the replay broadcasts is checked against what the server broadcast, so a
+// disputed result can be reproduced exactly.
+//   java MatchReplay <journal dir>               one line per session
+//   java MatchReplay <journal dir> <session id>  every event and the final state
+public class MatchReplay {
+    private final Map<Integer, ReplayedSession> sessions = new LinkedHashMap<>();
+    // Session to print in full, -1 for none
+    private final int traced;
+
+    MatchReplay(int traced) {
+        this.traced = traced;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java MatchReplay <journal dir> [session id]");
+            return;
+        }
+        MatchReplay replay = new MatchReplay(args.length > 1 ? Integer.parseInt(args[1]) : -1);
+        MatchJournal.read(Paths.get(args[0]), replay::apply);
+        replay.report();
+    }
+
+    private void apply(MatchJournal.Entry entry) {
+        ReplayedSession session = sessions.get(entry.session);
+        // Session ids start over with every server run; the seed tells the runs apart
+        if (entry.type == MatchJournal.START && (session == null || session.seed != entry.seed)) {
+            session = new ReplayedSession(entry.session, entry.seed);
+            sessions.put(entry.session, session);
+        }
+        if (session == null) {
+            return; // Its start is in a segment that is gone
+        }
+        boolean trace = entry.session == traced;
+
+        switch (entry.type) {
+            case MatchJournal.START:
+                session.start(entry);
+                if (trace) {
+                    System.out.println("▶ " + WireCodec.gameName(entry.value) + ": " + entry.text + " vs " + entry.second
+                                       + " (seed " + Long.toHexString(entry.seed) + ")");
+                }
+                break;
+            case MatchJournal.MOVE:
+                if (trace) {
+                    System.out.println("   " + session.playerName(entry.value) + " → " + entry.text);
+                }
+                session.move(entry.value, entry.text);
+                break;
+            case MatchJournal.OUTPUT:
+                String replayed = session.expected.poll();
+                if (entry.text.equals(replayed)) {
+                    session.matched++;
+                } else {
+                    session.mismatched++;
+                }
+                if (trace) {
+                    System.out.println("      " + entry.text
+                                       + (entry.text.equals(replayed) ? "" : "   ❌ replay gave " + replayed));
+                }
+                break;
+            case MatchJournal.END:
+                session.end();
+                if (trace) {
+                    System.out.println("■ game ended");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void report() {
+        if (traced >= 0) {
+            ReplayedSession session = sessions.get(traced);
+            if (session == null) {
+                System.out.println("❌ No session " + traced + " in the journal");
+                return;
+            }
+            if (session.logic != null) {
+                System.out.println("Final state:");
+                ReplayPlayer viewer = new ReplayPlayer("viewer", true);
+                session.logic.sendStateTo(viewer);
+            }
+            System.out.println(session.summary());
+            return;
+        }
+        int mismatched = 0;
+        for (ReplayedSession session : sessions.values()) {
+            System.out.println(session.summary());
+            mismatched += session.mismatched;
+        }
+        System.out.println(mismatched == 0
+            ? "✅ " + sessions.size() + " sessions replayed identically"
+            : "❌ " + mismatched + " broadcasts differ from the journal");
+    }
+
+    // One session's games replayed with the session's own generator, which
+    // carries over from one game to the next just as on the server
+    private static class ReplayedSession {
+        final int id;
+        final long seed;
+        final SplittableRandom random;
+        // Broadcasts from the replay not yet compared with the journal
+        final Queue<String> expected = new ArrayDeque<>();
+        List<ClientHandler> players;
+        GameLogic logic;
+        int games;
+        int moves;
+        int matched;
+        int mismatched;
+
+        ReplayedSession(int id, long seed) {
+            this.id = id;
+            this.seed = seed;
+            this.random = new SplittableRandom(seed);
+        }
+
+        void start(MatchJournal.Entry entry) {
+            players = new ArrayList<>(List.of(new ReplayPlayer(entry.text, false), new ReplayPlayer(entry.second, false)));
+            // The delayed replay prompt is not part of the record, so timers are dropped
+            logic = new GameLogic(players, Collections.emptyList(), entry.value, task -> { }, random);
+            logic.setRecorder(new MatchRecorder() {
+                @Override
+                public void broadcast(String message) {
+                    expected.add(message);
+                }
+            });
+            games++;
+            logic.startGame();
+        }
+
+        void move(int seat, String move) {
+            moves++;
+            if (logic != null) {
+                logic.processMove(players.get(seat), move);
+            }
+        }
+
+        void end() {
+            if (logic != null) {
+                logic.cancelTimers();
+            }
+        }
+
+        String playerName(int seat) {
+            return players == null ? "seat " + seat : players.get(seat).getPlayerName();
+        }
+
+        String summary() {
+            return (mismatched == 0 ? "✅" : "❌") + " Session " + id + ": " + playerName(0) + " vs " + playerName(1)
+                   + ", " + games + " games, " + moves + " moves, " + matched + "/" + (matched + mismatched)
+                   + " broadcasts reproduced (seed " + Long.toHexString(seed) + ")";
+        }
+    }
+}
+
+// Seat in a replayed game; only the final-state viewer prints what it is sent
+class ReplayPlayer extends ClientHandler {
+    private final String name;
+    private final boolean echo;
+
+    ReplayPlayer(String name, boolean echo) {
+        this.name = name;
+        this.echo = echo;
+    }
+
+    @Override
+    public String getPlayerName() {
+        return name;
+    }
+
+    @Override
+    public void send(OutboundMessage outbound) {
+        if (echo) {
+            System.out.println("   " + outbound.getText());
+        }
+    }
+}
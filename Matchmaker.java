@@ -0,0 +1,203 @@
+// Matchmaker.java
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+// Pairs incoming players with sessions that still have an open seat.
+// Sessions holding exactly one player sit in a lock-free queue, so a join is
+// a poll instead of a scan over every session. The seat itself is claimed
+// under the session's own lock, which is what stops a player from ever being
+// seated twice or a session from growing past two players.
+public class Matchmaker {
+    private final Queue<GameSession> waitingSessions = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, GameSession> activeSessions = new ConcurrentHashMap<>();
+    // Players who sent QUEUE:<game> wait here instead of in waitingSessions
+    private final SkillMatcher skillMatcher = new SkillMatcher(this);
+    // 0 keeps bots out; otherwise how long a lone player waits before one sits down
+    private long botDelayMillis = 0;
+    private long botMoveMillis = 500;
+    // Every session's random stream is derived from this
+    private long masterSeed = new SecureRandom().nextLong();
+    // Null unless the server was started with --journal
+    private volatile MatchJournal journal;
+    // Null unless the server was started with --ratings
+    private volatile Leaderboard leaderboard;
+    // How long a dropped player's seat waits for them to reconnect
+    private volatile long resumeGraceMillis = 30_000;
+
+    public void enableBots(long delayMillis, long moveBudgetMillis) {
+        this.botDelayMillis = delayMillis;
+        this.botMoveMillis = moveBudgetMillis;
+    }
+
+    public long getBotDelayMillis() {
+        return botDelayMillis;
+    }
+
+    public void setMasterSeed(long seed) {
+        this.masterSeed = seed;
+    }
+
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+
+    public void setResumeGraceMillis(long millis) {
+        this.resumeGraceMillis = millis;
+    }
+
+    public long getResumeGraceMillis() {
+        return resumeGraceMillis;
+    }
+
+    public void setJournal(MatchJournal journal) {
+        this.journal = journal;
+    }
+
+    public MatchJournal getJournal() {
+        return journal;
+    }
+    
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+    
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+    
+    public SkillMatcher getSkillMatcher() {
+        return skillMatcher;
+    }
+
+    // SplitMix64 finalizer over seed and id: cheap, stateless, so sessions
+    // created on different threads never share or contend on a generator
+    long seedFor(int sessionId) {
+        long z = masterSeed + sessionId * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Logins arrive on every reader thread at once, without a shared lock.
+    // Two lone players can both find the queue empty and each open a
+    // session, so after publishing its own a joiner looks at the sessions
+    // queued ahead of it and moves into one that is still waiting. Only the
+    // later of the two moves: the earlier one sees nothing ahead of it, and
+    // the later one is sure to see the earlier.
+    public void assign(ClientHandler client) {
+        while (true) {
+            GameSession session;
+            while ((session = waitingSessions.poll()) != null) {
+                if (session.tryAddPlayer(client)) {
+                    return;
+                }
+                // Emptied out since it was queued, just drop it
+            }
+
+            GameSession own = new GameSession(this);
+            activeSessions.put(own.getId(), own);
+            own.tryAddPlayer(client);
+            waitingSessions.add(own);
+
+            GameSession ahead = claimSessionAhead(own);
+            if (ahead == null) {
+                scheduleBot(own);
+                return;
+            }
+            // Removing our session from the queue is what stops anyone joining it
+            if (!waitingSessions.remove(own)) {
+                requeue(ahead); // Someone joined us first; the other one goes back to waiting
+                return;
+            }
+            own.abandon(client);
+            if (ahead.tryAddPlayer(client)) {
+                return;
+            }
+            // Its player left while we moved over; start again
+        }
+    }
+
+    // Takes the first still-waiting session queued before ours out of the queue, as a poll would
+    private GameSession claimSessionAhead(GameSession own) {
+        for (GameSession session : waitingSessions) {
+            if (session == own) {
+                return null;
+            }
+            if (session.isWaitingForPlayer() && waitingSessions.remove(session)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    // A pair from the SkillMatcher gets a session of its own and goes
+    // straight into the game it queued for. A player who dropped while being
+    // seated is handled like any other dropped connection.
+    public void startMatch(ClientHandler first, ClientHandler second, int gameId) {
+        GameSession session = new GameSession(this);
+        activeSessions.put(session.getId(), session);
+        session.seatPair(first, second, gameId);
+        for (ClientHandler player : new ClientHandler[] {first, second}) {
+            if (player.isDisconnected()) {
+                session.playerDisconnected(player);
+            }
+        }
+    }
+
+    // For a queued player who has waited out the bot delay
+    public void startBotMatch(ClientHandler player, int gameId) {
+        startMatch(player, new BotPlayer(botMoveMillis), gameId);
+    }
+
+    // A session went from two players back to one
+    public void requeue(GameSession session) {
+        waitingSessions.add(session);
+        scheduleBot(session);
+    }
+
+    private void scheduleBot(GameSession session) {
+        if (botDelayMillis > 0) {
+            session.scheduleBot(() -> seatBot(session), botDelayMillis);
+        }
+    }
+
+    // Taking the session back out of the queue is what claims the seat, so a
+    // human who polled it first always wins. The remove is a scan, but it only
+    // happens once per lone player and on the scheduler thread.
+    private void seatBot(GameSession session) {
+        if (waitingSessions.remove(session) && session.isWaitingForPlayer()) {
+            session.tryAddPlayer(new BotPlayer(botMoveMillis));
+        }
+    }
+
+    public void sessionClosed(GameSession session) {
+        activeSessions.remove(session.getId());
+    }
+
+    // By id, or with an empty id any session that is in the middle of a game
+    public GameSession findSession(String sessionId) {
+        if (sessionId.isEmpty()) {
+            for (GameSession session : activeSessions.values()) {
+                if (session.getGameId() != 0) {
+                    return session;
+                }
+            }
+            return null;
+        }
+        try {
+            return activeSessions.get(Integer.parseInt(sessionId));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void forEachSession(Consumer<GameSession> action) {
+        activeSessions.values().forEach(action);
+    }
+
+    public int getSessionCount() {
+        return activeSessions.size();
+    }
+}
@@ -0,0 +1,301 @@
+// NioGameServer.java
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Selector based server mode: one acceptor plus a small fixed set of reactor
+// threads instead of one blocking thread per player. Speaks the same text and
+// binary protocols and drives the same GameSession/GameLogic code as the
+// default mode.
+public class NioGameServer {
+    private final int port;
+    private final Reactor[] reactors;
+
+    public NioGameServer(int port, int reactorCount) throws IOException {
+        this.port = port;
+        this.reactors = new Reactor[reactorCount];
+        for (int i = 0; i < reactorCount; i++) {
+            reactors[i] = new Reactor(i);
+        }
+    }
+
+    public void serve() throws IOException {
+        for (Reactor reactor : reactors) {
+            reactor.start();
+        }
+        System.out.println("⚡ NIO mode with " + reactors.length + " reactor thread(s)");
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            int next = 0;
+            while (true) {
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                System.out.println("🔗 New connection: " + channel.getRemoteAddress());
+
+                Reactor reactor = reactors[next];
+                next = (next + 1) % reactors.length;
+
+                NioClientHandler handler = new NioClientHandler(channel, reactor);
+                reactor.register(handler);
+                GameServer.addClient(handler);
+            }
+        }
+    }
+}
+
+class Reactor implements Runnable {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<NioClientHandler> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioClientHandler> pendingFlushes = new ConcurrentLinkedQueue<>();
+    // Shared by every connection on this reactor, only touched by the reactor thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    public Reactor(int id) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, "reactor-" + id);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void register(NioClientHandler handler) {
+        registrations.add(handler);
+        selector.wakeup();
+    }
+
+    public void requestFlush(NioClientHandler handler) {
+        pendingFlushes.add(handler);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.out.println("❌ Reactor error: " + e.getMessage());
+                return;
+            }
+
+            NioClientHandler handler;
+            // A bug while serving one client ends that connection, never the
+            // reactor and every other connection on it
+            while ((handler = registrations.poll()) != null) {
+                try {
+                    handler.attach(selector);
+                } catch (RuntimeException e) {
+                    handler.fail(e);
+                }
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioClientHandler client = (NioClientHandler) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) {
+                        client.onReadable(readBuffer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        client.flushPending();
+                    }
+                } catch (RuntimeException e) {
+                    client.fail(e);
+                }
+            }
+
+            // After the reads, so replies written on this thread (which does not
+            // wake the selector for itself) go out before it blocks again
+            while ((handler = pendingFlushes.poll()) != null) {
+                try {
+                    handler.flushPending();
+                } catch (RuntimeException e) {
+                    handler.fail(e);
+                }
+            }
+        }
+    }
+}
+
+class NioClientHandler extends ClientHandler {
+    private static final int MAX_PENDING_BYTES = 80 * 1024;
+
+    private final SocketChannel channel;
+    private final Reactor reactor;
+    private SelectionKey key;
+
+    // Bytes read but not yet handled: a partial line or frame
+    private byte[] inbound = new byte[256];
+    private int inboundLength = 0;
+
+    // Reactor thread only: a batch taken from the outbound queue, written from gatherStart on
+    private final byte[][] batch = new byte[16][];
+    private final ByteBuffer[] gather = new ByteBuffer[16];
+    private int gatherStart = 0;
+    private int gatherEnd = 0;
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Set by other threads; the reactor does the close since only it touches the key
+    private volatile boolean closeRequested = false;
+
+    public NioClientHandler(SocketChannel channel, Reactor reactor) {
+        this.channel = channel;
+        this.reactor = reactor;
+    }
+
+    void attach(Selector selector) {
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            flushPending();
+        } catch (ClosedChannelException e) {
+            close();
+        }
+    }
+
+    void onReadable(ByteBuffer readBuffer) {
+        try {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            append(readBuffer);
+
+            int consumed = 0;
+            while (!closed.get()) {
+                int used = isBinaryProtocol() ? consumeFrame(consumed) : consumeLine(consumed);
+                if (used == 0) break;
+                consumed += used;
+            }
+            System.arraycopy(inbound, consumed, inbound, 0, inboundLength - consumed);
+            inboundLength -= consumed;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("⚠️ " + getPlayerName() + " disconnected!");
+            close();
+        }
+    }
+
+    private void append(ByteBuffer readBuffer) throws IOException {
+        int needed = inboundLength + readBuffer.remaining();
+        if (needed > inbound.length) {
+            if (needed > MAX_PENDING_BYTES) {
+                throw new IOException("Message too long");
+            }
+            inbound = Arrays.copyOf(inbound, Math.max(needed, inbound.length * 2));
+        }
+        readBuffer.get(inbound, inboundLength, readBuffer.remaining());
+        inboundLength = needed;
+    }
+
+    // Each returns how many bytes it consumed, 0 if the message is incomplete
+    private int consumeLine(int start) {
+        for (int i = start; i < inboundLength; i++) {
+            if (inbound[i] == '\n') {
+                int end = i > start && inbound[i - 1] == '\r' ? i - 1 : i;
+                handleLine(new String(inbound, start, end - start, StandardCharsets.UTF_8));
+                return i + 1 - start;
+            }
+        }
+        return 0;
+    }
+
+    private int consumeFrame(int start) throws IOException {
+        if (inboundLength - start < 2) return 0;
+        int length = ((inbound[start] & 0xFF) << 8) | (inbound[start + 1] & 0xFF);
+        if (length == 0) throw new IOException("Empty frame");
+        if (inboundLength - start < 2 + length) return 0;
+        handleLine(WireCodec.decodeClientMessage(inbound, start + 2, length));
+        return 2 + length;
+    }
+
+    @Override
+    protected void flushOutput() {
+        if (!outbound.isEmpty() && flushQueued.compareAndSet(false, true)) {
+            reactor.requestFlush(this);
+        }
+    }
+
+    // Only ever called on the reactor thread
+    void flushPending() {
+        flushQueued.set(false);
+        if (closeRequested) {
+            close();
+            return;
+        }
+        if (key == null || !key.isValid()) return;
+
+        try {
+            while (true) {
+                if (gatherStart == gatherEnd) {
+                    // Take the next batch; once out of the queue it is never dropped
+                    gatherStart = 0;
+                    gatherEnd = outbound.drainTo(batch);
+                    if (gatherEnd == 0) break;
+                    for (int i = 0; i < gatherEnd; i++) {
+                        gather[i] = ByteBuffer.wrap(batch[i]);
+                        batch[i] = null;
+                    }
+                }
+                // Gather the whole batch into one write call
+                channel.write(gather, gatherStart, gatherEnd - gatherStart);
+                while (gatherStart < gatherEnd && !gather[gatherStart].hasRemaining()) {
+                    gather[gatherStart++] = null;
+                }
+                if (gatherStart < gatherEnd) {
+                    // Socket buffer is full, pick up again once it drains
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            System.out.println("⚠️ " + getPlayerName() + " disconnected!");
+            close();
+        }
+    }
+
+    @Override
+    void disconnect() {
+        closeRequested = true;
+        reactor.requestFlush(this);
+    }
+
+    // Only ever called on the reactor thread, for an exception that escaped this client's handling
+    void fail(RuntimeException e) {
+        System.out.println("❌ Error serving " + getPlayerName() + ": " + e);
+        try {
+            close();
+        } catch (RuntimeException again) {
+            System.out.println("❌ Error closing " + getPlayerName() + ": " + again);
+        }
+    }
+
+    private void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing socket.");
+        }
+        outbound.close();
+        handleDisconnect();
+    }
+}
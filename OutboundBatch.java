@@ -0,0 +1,57 @@
+// OutboundBatch.java
+import java.util.*;
+
+// Remembers which connections were written to while one event is handled so
+// each gets a single flush at the end instead of one per message
+class OutboundBatch {
+    private static final ThreadLocal<OutboundBatch> CURRENT = ThreadLocal.withInitial(OutboundBatch::new);
+    
+    private final List<ClientHandler> dirty = new ArrayList<>(4);
+    private final List<Runnable> afterFlush = new ArrayList<>(4);
+    private boolean active = false;
+    
+    static void run(Runnable task) {
+        OutboundBatch batch = CURRENT.get();
+        if (batch.active) {
+            task.run();
+            return;
+        }
+        batch.active = true;
+        try {
+            task.run();
+        } finally {
+            batch.active = false;
+            for (ClientHandler handler : batch.dirty) {
+                handler.flush();
+            }
+            batch.dirty.clear();
+            for (Runnable action : batch.afterFlush) {
+                action.run();
+            }
+            batch.afterFlush.clear();
+        }
+    }
+    
+    // Runs the action once this thread's batch has been flushed, or right
+    // away when no batch is open
+    static void afterFlush(Runnable action) {
+        OutboundBatch batch = CURRENT.get();
+        if (batch.active) {
+            batch.afterFlush.add(action);
+        } else {
+            action.run();
+        }
+    }
+    
+    // False when no batch is open on this thread and the caller should flush
+    // itself. The handler remembers that it is queued, so a broadcast to
+    // thousands of spectators does not scan the list for every receiver.
+    static boolean defer(ClientHandler handler) {
+        OutboundBatch batch = CURRENT.get();
+        if (!batch.active) {
+            return false;
+        }
+        batch.dirty.add(handler);
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+// OutboundMessage.java
+// A server message plus its wire bytes, encoded lazily and at most once per
+// protocol. The arrays are never written after encoding, so every connection
+// can queue the very same bytes.
+final class OutboundMessage {
+    private final String text;
+    private byte[] textBytes;
+    private byte[] binaryBytes;
+    private int stateSlot = -1;
+    
+    OutboundMessage(String text) {
+        this.text = text;
+    }
+    
+    String getText() {
+        return text;
+    }
+    
+    // See OutboundQueue.stateSlot; worked out once for all receivers
+    int getStateSlot() {
+        int slot = stateSlot;
+        if (slot < 0) {
+            int colon = text.indexOf(':');
+            slot = colon < 0 ? 0 : OutboundQueue.stateSlot(WireCodec.serverOpcode(text, colon));
+            stateSlot = slot;
+        }
+        return slot;
+    }
+    
+    // Only the sending thread encodes; other threads see the arrays through the transport's queue
+    byte[] encodedFor(boolean binary) {
+        if (binary) {
+            if (binaryBytes == null) binaryBytes = WireCodec.encodeServerMessage(text);
+            return binaryBytes;
+        }
+        if (textBytes == null) textBytes = ClientHandler.encodeText(text);
+        return textBytes;
+    }
+}
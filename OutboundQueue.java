@@ -0,0 +1,144 @@
+// OutboundQueue.java
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// Bytes a connection has been sent that its socket has not taken yet. Game
+// code only ever appends here; the transport drains it on its own thread, so
+// a player on a slow link can never make a session wait on their socket.
+// The queue is bounded. When a message would take it over the limit the
+// policy decides: DROP_STALE throws away queued BOARD, SCORE and status lines
+// that a newer one of the same kind supersedes, and gives up on the
+// connection only if that is not enough; DISCONNECT gives up at once.
+// The transport takes whole batches out, so nothing in flight is dropped.
+public class OutboundQueue {
+    public enum Policy { DROP_STALE, DISCONNECT }
+
+    private static volatile int limitBytes = 256 * 1024;
+    private static volatile Policy policy = Policy.DROP_STALE;
+
+    // Across every connection
+    private static final LongAdder queuedBytes = new LongAdder();
+    private static final LongAdder droppedMessages = new LongAdder();
+    private static final LongAdder slowDisconnects = new LongAdder();
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private int bytes = 0;
+    private boolean closed = false;
+
+    public static void configure(int limitBytes, Policy policy) {
+        OutboundQueue.limitBytes = limitBytes;
+        OutboundQueue.policy = policy;
+    }
+
+    // Messages that only replace what the client shows; TURN and WAIT share the status line
+    static int stateSlot(int opcode) {
+        switch (opcode) {
+            case WireCodec.BOARD:
+            case WireCodec.SCORE:
+            case WireCodec.TURN:
+                return opcode;
+            case WireCodec.WAIT:
+                return WireCodec.TURN;
+            default:
+                return 0;
+        }
+    }
+
+    // False when the connection is too far behind and has to go
+    public synchronized boolean offer(byte[] message, int slot) {
+        if (closed) {
+            return true; // Nobody left to read it
+        }
+        if (bytes + message.length > limitBytes) {
+            if (policy == Policy.DISCONNECT || !dropStale(slot) || bytes + message.length > limitBytes) {
+                return false;
+            }
+        }
+        entries.addLast(new Entry(message, slot));
+        bytes += message.length;
+        queuedBytes.add(message.length);
+        return true;
+    }
+
+    // Keeps only the newest queued line of each state kind, counting the
+    // incoming one as the newest; false if nothing could be dropped
+    private boolean dropStale(int incomingSlot) {
+        int seen = incomingSlot > 0 ? 1 << incomingSlot : 0;
+        int freed = 0;
+        int dropped = 0;
+        Iterator<Entry> newestFirst = entries.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Entry entry = newestFirst.next();
+            if (entry.slot == 0) {
+                continue;
+            }
+            if ((seen & (1 << entry.slot)) != 0) {
+                newestFirst.remove();
+                freed += entry.bytes.length;
+                dropped++;
+            } else {
+                seen |= 1 << entry.slot;
+            }
+        }
+        bytes -= freed;
+        queuedBytes.add(-freed);
+        droppedMessages.add(dropped);
+        return dropped > 0;
+    }
+
+    // Moves up to batch.length messages, oldest first, into the batch
+    public synchronized int drainTo(byte[][] batch) {
+        int count = 0;
+        int drained = 0;
+        Entry entry;
+        while (count < batch.length && (entry = entries.pollFirst()) != null) {
+            batch[count++] = entry.bytes;
+            drained += entry.bytes.length;
+        }
+        bytes -= drained;
+        queuedBytes.add(-drained);
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized int getQueuedBytes() {
+        return bytes;
+    }
+
+    // For a connection that is going away: frees what is queued and ignores anything sent later
+    public synchronized void close() {
+        closed = true;
+        queuedBytes.add(-bytes);
+        bytes = 0;
+        entries.clear();
+    }
+
+    static void countSlowDisconnect() {
+        slowDisconnects.increment();
+    }
+
+    static long getTotalQueuedBytes() {
+        return queuedBytes.sum();
+    }
+
+    static long getDroppedCount() {
+        return droppedMessages.sum();
+    }
+
+    static long getSlowDisconnectCount() {
+        return slowDisconnects.sum();
+    }
+
+    private static class Entry {
+        final byte[] bytes;
+        final int slot;
+
+        Entry(byte[] bytes, int slot) {
+            this.bytes = bytes;
+            this.slot = slot;
+        }
+    }
+}
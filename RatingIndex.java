@@ -0,0 +1,199 @@
+// RatingIndex.java
+import java.util.*;
+
+// Players of one game ordered by rating, highest first, ties by name: a
+// skip list whose links also record how many places they jump, so a
+// player's rank and the player at a given rank both take O(log n). Only the
+// leaderboard's worker thread touches it.
+class RatingIndex {
+    private static final int MAX_LEVEL = 32;
+
+    static final class Node {
+        final String name;
+        double rating;
+        int games;
+        final Node[] next;
+        // span[i]: places from this node to next[i]; to the end of the list when next[i] is null
+        final int[] span;
+
+        Node(String name, int level) {
+            this.name = name;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    private final Node head = new Node(null, MAX_LEVEL);
+    private final Map<String, Node> byName = new HashMap<>();
+    private final SplittableRandom levels = new SplittableRandom();
+    private int level = 1;
+    private int size = 0;
+    // Last node on each level while the index is only being appended to, else null
+    private Node[] tails = new Node[MAX_LEVEL];
+    private int[] tailRanks = new int[MAX_LEVEL];
+
+    RatingIndex() {
+        Arrays.fill(tails, head);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Node get(String name) {
+        return byName.get(name);
+    }
+
+    // Moves an existing player to their new place, or adds a new one
+    Node update(String name, double rating, int games) {
+        Node node = byName.get(name);
+        if (node == null) {
+            node = new Node(name, randomLevel());
+            byName.put(name, node);
+        } else {
+            remove(node);
+        }
+        node.rating = rating;
+        node.games = games;
+        insert(node);
+        return node;
+    }
+
+    // 1 for the best player
+    int rankOf(Node node) {
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !before(node, x.next[i])) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x == node) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    // Null past the end
+    Node atRank(int rank) {
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x == head ? null : x;
+            }
+        }
+        return null;
+    }
+
+    // For loading a snapshot, which is already in rank order: O(1) per player
+    void append(String name, double rating, int games) {
+        Node node = new Node(name, randomLevel());
+        node.rating = rating;
+        node.games = games;
+        Node last = tails == null ? null : tails[0];
+        if (tails == null || byName.containsKey(name) || (last != head && !before(last, node))) {
+            // Out of order after all; fall back to a normal insert
+            if (byName.containsKey(name)) {
+                update(name, rating, games);
+                return;
+            }
+            byName.put(name, node);
+            insert(node);
+            return;
+        }
+        byName.put(name, node);
+        int rank = size + 1;
+        int nodeLevel = node.next.length;
+        if (nodeLevel > level) {
+            level = nodeLevel;
+        }
+        for (int i = 0; i < nodeLevel; i++) {
+            tails[i].next[i] = node;
+            tails[i].span[i] = rank - tailRanks[i];
+            tails[i] = node;
+            tailRanks[i] = rank;
+        }
+        // Links that run to the end now have one more place to cover
+        for (int i = nodeLevel; i < level; i++) {
+            tails[i].span[i]++;
+        }
+        size = rank;
+    }
+
+    private void insert(Node node) {
+        tails = null;
+        tailRanks = null;
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], node)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int nodeLevel = node.next.length;
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    // Uses the node's current rating to find it, so call before changing it
+    private void remove(Node node) {
+        tails = null;
+        tailRanks = null;
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], node)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+    }
+
+    private static boolean before(Node a, Node b) {
+        return a.rating > b.rating || (a.rating == b.rating && a.name.compareTo(b.name) < 0);
+    }
+
+    // Each level up with probability 1/4
+    private int randomLevel() {
+        int level = 1 + Long.numberOfTrailingZeros(levels.nextLong()) / 2;
+        return Math.min(level, MAX_LEVEL);
+    }
+}
@@ -0,0 +1,45 @@
+// ResumeTokens.java
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Every player gets a token when they log in. If their connection drops while
+// two players are seated, the session holds the seat for a grace period, and a
+// new connection that logs in with RESUME:<token>:<name> takes it back
+// instead of being matched again. A token can be claimed once; the new
+// connection is handed a fresh one.
+public class ResumeTokens {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Map<String, ClientHandler> holders = new ConcurrentHashMap<>();
+
+    private ResumeTokens() {
+    }
+
+    // 128 random bits, URL-safe so it never contains the protocol's colon
+    public static String issue(ClientHandler client) {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        String token = ENCODER.encodeToString(bytes);
+        client.setResumeToken(token);
+        holders.put(token, client);
+        return token;
+    }
+
+    // The connection that held the token, or null if it is unknown or already used
+    public static ClientHandler claim(String token) {
+        return holders.remove(token);
+    }
+
+    // Once the seat is gone there is nothing left to resume
+    public static void revoke(ClientHandler client) {
+        String token = client.getResumeToken();
+        if (token != null) {
+            holders.remove(token, client);
+        }
+    }
+
+    public static int getOutstandingCount() {
+        return holders.size();
+    }
+}
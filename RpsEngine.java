@@ -0,0 +1,55 @@
+// RpsEngine.java
+import java.util.*;
+
+class RpsEngine implements GameEngine {
+    private final String[] choices = new String[2];
+
+    public void startRound(GameLogic game) {
+        Arrays.fill(choices, null);
+        game.sendToPlayers("GAME_START:RPS:Choose Rock (R), Paper (P), or Scissors (S)");
+        game.broadcastScores();
+    }
+
+    public void handleMove(GameLogic game, int seat, String move) {
+        choices[seat] = move.toUpperCase();
+        game.player(seat).setLastResponse(move);
+        game.player(seat).sendMessage("WAIT:Waiting for opponent...");
+
+        if (choices[0] != null && choices[1] != null) {
+            determineWinner(game);
+        }
+    }
+
+    public void appendRoundState(GameLogic game, int seat, List<String> lines) {
+        lines.add("GAME_START:RPS:Choose Rock (R), Paper (P), or Scissors (S)");
+        if (choices[seat] != null) {
+            lines.add("WAIT:Waiting for opponent...");
+        }
+    }
+
+    private void determineWinner(GameLogic game) {
+        String p1Choice = choices[0];
+        String p2Choice = choices[1];
+
+        if (p1Choice.equals(p2Choice)) {
+            game.finishRound("DRAW:It's a tie! Both chose " + getFullName(p1Choice), -1);
+        } else if ((p1Choice.equals("R") && p2Choice.equals("S")) ||
+                   (p1Choice.equals("P") && p2Choice.equals("R")) ||
+                   (p1Choice.equals("S") && p2Choice.equals("P"))) {
+            game.finishRound("WINNER:" + game.player(0).getPlayerName() + " wins! " +
+                             getFullName(p1Choice) + " beats " + getFullName(p2Choice), 0);
+        } else {
+            game.finishRound("WINNER:" + game.player(1).getPlayerName() + " wins! " +
+                             getFullName(p2Choice) + " beats " + getFullName(p1Choice), 1);
+        }
+    }
+
+    private static String getFullName(String choice) {
+        switch (choice) {
+            case "R": return "Rock";
+            case "P": return "Paper";
+            case "S": return "Scissors";
+            default: return choice;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+// ServerChecks.java
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+// Concurrency checks for the session and matchmaking code, without sockets.
+// Each one drives the real classes from many threads with StubPlayers and
+// counts every broken invariant; the exit status is 1 if any check failed.
+//   java ServerChecks [filter] [--threads=8] [--games=100000]
+public class ServerChecks {
+    // The server's own console logging is muted while checks run
+    private static final PrintStream report = System.out;
+
+    // Played to the end in batches, so only one batch's sessions are alive at a time
+    private static final int GAME_BATCH = 10_000;
+
+    private final int threads;
+    private final int games;
+    private int failures = 0;
+
+    ServerChecks(int threads, int games) {
+        this.threads = threads;
+        this.games = games;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String filter = "";
+        int threads = 8;
+        int games = 100_000;
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--games=")) games = Integer.parseInt(arg.substring("--games=".length()));
+            else filter = arg.toLowerCase();
+        }
+        ServerChecks checks = new ServerChecks(threads, games);
+
+        Map<String, Check> cases = new LinkedHashMap<>();
+        cases.put("seat race", checks::seatRace);
+        cases.put("concurrent assign", checks::concurrentAssign);
+        cases.put("timers after games end", checks::timersAfterGamesEnd);
+
+        report.println("🔍 " + threads + " threads per check");
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        for (Map.Entry<String, Check> entry : cases.entrySet()) {
+            if (entry.getKey().toLowerCase().contains(filter)) {
+                int before = checks.failures;
+                long start = System.nanoTime();
+                entry.getValue().run();
+                report.printf("   %-28s %s  (%d ms)%n", entry.getKey(), checks.failures == before ? "✅ ok" : "❌ FAILED",
+                              (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        System.exit(checks.failures > 0 ? 1 : 0);
+    }
+
+    interface Check {
+        void run() throws InterruptedException;
+    }
+
+    private void fail(String message) {
+        failures++;
+        report.println("   ❌ " + message);
+    }
+
+    // Runs the task once on every thread, all released at the same moment
+    private void onAllThreads(IntConsumer task) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.accept(index);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ready.await();
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Every thread grabs a seat in the same fresh session at the same moment;
+    // exactly two may get one
+    private void seatRace() throws InterruptedException {
+        int sessions = 2_000;
+        Matchmaker matchmaker = new Matchmaker();
+        for (int i = 0; i < sessions; i++) {
+            GameSession session = new GameSession(matchmaker);
+            AtomicInteger seated = new AtomicInteger();
+            onAllThreads(t -> {
+                if (session.tryAddPlayer(new StubPlayer("r" + t))) seated.incrementAndGet();
+            });
+            if (seated.get() != Math.min(2, threads)) {
+                fail(seated.get() + " players got a seat in session " + session.getId());
+                return;
+            }
+        }
+    }
+
+    // Every thread logs players in at once, then they keep leaving and
+    // joining again. A session must never end up with more than two
+    // players, its seat count must match the players pointing at it, and
+    // when nobody has left yet at most one player may be waiting alone.
+    private void concurrentAssign() throws InterruptedException {
+        int perThread = 2_000;
+        int rounds = 20;
+        Matchmaker matchmaker = new Matchmaker();
+        ClientHandler[][] players = new ClientHandler[threads][perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                players[t][i] = new StubPlayer("p" + t + "-" + i);
+            }
+        }
+
+        // Sampled while the threads run, in case a session goes over and back
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger overfull = new AtomicInteger();
+        Thread watcher = new Thread(() -> {
+            while (running.get()) {
+                matchmaker.forEachSession(session -> {
+                    if (session.getPlayerCount() > 2) overfull.incrementAndGet();
+                });
+            }
+        });
+        watcher.setDaemon(true);
+        watcher.start();
+
+        onAllThreads(t -> {
+            for (ClientHandler player : players[t]) {
+                matchmaker.assign(player);
+            }
+        });
+        verifySeats(matchmaker, players, "after the first joins", true);
+
+        for (int round = 0; round < rounds; round++) {
+            onAllThreads(t -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (ClientHandler player : players[t]) {
+                    if (random.nextBoolean()) {
+                        player.getGameSession().removePlayer(player);
+                        matchmaker.assign(player);
+                    }
+                }
+            });
+            verifySeats(matchmaker, players, "after leave/join round " + (round + 1), false);
+        }
+        running.set(false);
+        watcher.join();
+        if (overfull.get() > 0) {
+            fail(overfull.get() + " samples saw a session with more than two seats taken");
+        }
+    }
+
+    // Plays many real sessions to a result and then has both players leave,
+    // half of them before the replay prompt fires and half after. Finished
+    // games used to start a Timer thread each; the live thread count and the
+    // scheduler's queue have to come back to where they were.
+    private void timersAfterGamesEnd() throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Matchmaker matchmaker = new Matchmaker();
+        // Lets the actor pool and the scheduler start their threads first
+        playAndLeave(matchmaker, 200);
+        int threadsBefore = threadBean.getThreadCount();
+        int pendingBefore = GameScheduler.getPendingCount();
+
+        for (int played = 0; played < games; played += GAME_BATCH) {
+            playAndLeave(matchmaker, Math.min(GAME_BATCH, games - played));
+        }
+        int threadsAfter = threadBean.getThreadCount();
+        int pendingAfter = GameScheduler.getPendingCount();
+        report.printf("   %d games: threads %d -> %d, pending timers %d -> %d%n",
+                      games, threadsBefore, threadsAfter, pendingBefore, pendingAfter);
+        // The actor pool may still add workers up to its size under load
+        if (threadsAfter > threadsBefore + Runtime.getRuntime().availableProcessors()) {
+            fail("thread count grew from " + threadsBefore + " to " + threadsAfter + " over " + games + " games");
+        }
+        if (pendingAfter > pendingBefore) {
+            fail((pendingAfter - pendingBefore) + " timers still pending after every game ended");
+        }
+    }
+
+    private void playAndLeave(Matchmaker matchmaker, int games) throws InterruptedException {
+        List<List<ClientHandler>> early = new ArrayList<>();
+        List<List<ClientHandler>> late = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            GameSession session = new GameSession(matchmaker);
+            ClientHandler first = new StubPlayer("a" + i);
+            ClientHandler second = new StubPlayer("b" + i);
+            session.tryAddPlayer(first);
+            session.tryAddPlayer(second);
+            session.processMessage(first, "CHOOSE_GAME:RPS");
+            session.processMessage(first, "R");
+            session.processMessage(second, "S");
+            (i % 2 == 0 ? early : late).add(List.of(first, second));
+        }
+        // Queued behind the moves, so the round is over and its prompt pending
+        leave(early);
+        Thread.sleep(2_000);
+        leave(late);
+        // Leaving goes through the session mailboxes too
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (GameScheduler.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static void leave(List<List<ClientHandler>> pairs) {
+        for (List<ClientHandler> pair : pairs) {
+            for (ClientHandler player : pair) {
+                player.getGameSession().removePlayer(player);
+            }
+        }
+    }
+
+    private void verifySeats(Matchmaker matchmaker, ClientHandler[][] players, String when, boolean joinsOnly) {
+        Map<GameSession, Integer> seated = new HashMap<>();
+        int unseated = 0;
+        for (ClientHandler[] row : players) {
+            for (ClientHandler player : row) {
+                GameSession session = player.getGameSession();
+                if (session == null) {
+                    unseated++;
+                } else {
+                    seated.merge(session, 1, Integer::sum);
+                }
+            }
+        }
+        if (unseated > 0) {
+            fail(unseated + " players without a session " + when);
+        }
+        int alone = 0;
+        for (Map.Entry<GameSession, Integer> entry : seated.entrySet()) {
+            GameSession session = entry.getKey();
+            int count = entry.getValue();
+            if (count > 2) {
+                fail("session " + session.getId() + " holds " + count + " players " + when);
+            }
+            if (session.getPlayerCount() != count) {
+                fail("session " + session.getId() + " counts " + session.getPlayerCount() + " seats but "
+                     + count + " players point at it " + when);
+            }
+            if (count == 1) {
+                alone++;
+            }
+        }
+        // A leave puts its session back in the queue outside the matchmaker's
+        // lock, so after churn a few lone players can be waiting at once
+        if (joinsOnly && alone > 1) {
+            fail(alone + " players waiting alone " + when);
+        }
+        if (matchmaker.getSessionCount() < seated.size()) {
+            fail(seated.size() - matchmaker.getSessionCount() + " occupied sessions are missing from the matchmaker " + when);
+        }
+    }
+}
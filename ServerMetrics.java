@@ -0,0 +1,331 @@
+// ServerMetrics.java
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import com.sun.net.httpserver.HttpServer;
+
+// Live server numbers: connections, sessions by state and game, message
+// counts and rates, and move latency (inbound move until the session has
+// handed its replies to the transport) per game. The recording side is only
+// LongAdders and striped histograms, so the message path never takes a lock;
+// everything else is worked out when someone asks. Read it as Prometheus text
+// from http://localhost:<port>/metrics or as the GameServer:type=Metrics MBean.
+public class ServerMetrics {
+    // Index 0 collects messages sent before any known game was chosen
+    private static final int GAME_SLOTS = 5;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final long RATE_WINDOW_SECONDS = 5;
+
+    private static final LongAdder inboundMessages = new LongAdder();
+    private static final LatencyHistogram[] moveLatency = new LatencyHistogram[GAME_SLOTS];
+    private static final LongAdder[] moveLatencySum = new LongAdder[GAME_SLOTS];
+
+    static {
+        for (int i = 0; i < GAME_SLOTS; i++) {
+            moveLatency[i] = new LatencyHistogram();
+            moveLatencySum[i] = new LongAdder();
+        }
+    }
+
+    private final Set<ClientHandler> clients;
+    private final Matchmaker matchmaker;
+
+    // Per-second rates over the last window, refreshed on the scheduler thread
+    private long lastInbound = 0;
+    private long lastOutbound = 0;
+    private volatile double inboundRate = 0;
+    private volatile double outboundRate = 0;
+
+    public ServerMetrics(Set<ClientHandler> clients, Matchmaker matchmaker) {
+        this.clients = clients;
+        this.matchmaker = matchmaker;
+    }
+
+    // ---- Recording, called from the message path ----
+
+    static long messageReceived() {
+        inboundMessages.increment();
+        return System.nanoTime();
+    }
+
+    static void messageHandled(int gameId, long receivedAt) {
+        int slot = gameId > 0 && gameId < GAME_SLOTS ? gameId : 0;
+        long nanos = System.nanoTime() - receivedAt;
+        moveLatency[slot].record(nanos);
+        moveLatencySum[slot].add(nanos);
+    }
+
+    // ---- Exposure ----
+
+    public void start(int httpPort) throws IOException {
+        GameScheduler.scheduleAtFixedRate(this::updateRates, RATE_WINDOW_SECONDS, RATE_WINDOW_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new MetricsBean(), new ObjectName("GameServer:type=Metrics"));
+        } catch (JMException e) {
+            System.out.println("⚠️ Could not register metrics MBean: " + e.getMessage());
+        }
+
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), httpPort), 0);
+        http.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // One line for LobbyRouter's health checks: OK, connections, sessions waiting for an opponent
+        http.createContext("/health", exchange -> {
+            byte[] body = ("OK " + clients.size() + " " + countSessions().waiting + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        http.start();
+        System.out.println("📈 Metrics on http://localhost:" + httpPort + "/metrics");
+    }
+
+    private void updateRates() {
+        long inbound = inboundMessages.sum();
+        long outbound = ClientHandler.getMessagesSent();
+        inboundRate = (double) (inbound - lastInbound) / RATE_WINDOW_SECONDS;
+        outboundRate = (double) (outbound - lastOutbound) / RATE_WINDOW_SECONDS;
+        lastInbound = inbound;
+        lastOutbound = outbound;
+    }
+
+    // Walks every session once; only scrapes pay for this
+    private SessionCounts countSessions() {
+        SessionCounts counts = new SessionCounts();
+        matchmaker.forEachSession(session -> {
+            int gameId = session.getGameId();
+            if (session.getPlayerCount() < 2) {
+                counts.waiting++;
+            } else if (gameId == 0) {
+                counts.choosing++;
+            } else {
+                counts.playing[gameId < GAME_SLOTS ? gameId : 0]++;
+            }
+        });
+        return counts;
+    }
+
+    private static class SessionCounts {
+        int waiting;
+        int choosing;
+        int[] playing = new int[GAME_SLOTS];
+    }
+
+    String scrape() {
+        StringBuilder sb = new StringBuilder(2048);
+        SessionCounts sessions = countSessions();
+
+        header(sb, "game_connections", "gauge", "Connected players");
+        sb.append("game_connections ").append(clients.size()).append('\n');
+
+        header(sb, "game_sessions", "gauge", "Open sessions by state and game");
+        sb.append("game_sessions{state=\"waiting\",game=\"none\"} ").append(sessions.waiting).append('\n');
+        sb.append("game_sessions{state=\"choosing\",game=\"none\"} ").append(sessions.choosing).append('\n');
+        for (int id = 1; id < GAME_SLOTS; id++) {
+            sb.append("game_sessions{state=\"playing\",game=\"").append(WireCodec.gameName(id)).append("\"} ")
+              .append(sessions.playing[id]).append('\n');
+        }
+
+        header(sb, "game_messages_total", "counter", "Messages since start");
+        sb.append("game_messages_total{direction=\"inbound\"} ").append(inboundMessages.sum()).append('\n');
+        sb.append("game_messages_total{direction=\"outbound\"} ").append(ClientHandler.getMessagesSent()).append('\n');
+
+        header(sb, "game_message_rate", "gauge", "Messages per second over the last " + RATE_WINDOW_SECONDS + "s");
+        sb.append("game_message_rate{direction=\"inbound\"} ").append(inboundRate).append('\n');
+        sb.append("game_message_rate{direction=\"outbound\"} ").append(outboundRate).append('\n');
+
+        header(sb, "game_flushes_total", "counter", "Socket flushes since start");
+        sb.append("game_flushes_total ").append(ClientHandler.getFlushCount()).append('\n');
+
+        long deepest = 0;
+        for (ClientHandler client : clients) {
+            deepest = Math.max(deepest, client.getQueuedBytes());
+        }
+        header(sb, "game_outbound_queued_bytes", "gauge", "Bytes sent to players and not yet taken by their sockets");
+        sb.append("game_outbound_queued_bytes ").append(OutboundQueue.getTotalQueuedBytes()).append('\n');
+        header(sb, "game_outbound_queue_max_bytes", "gauge", "Deepest single connection's outbound queue");
+        sb.append("game_outbound_queue_max_bytes ").append(deepest).append('\n');
+        header(sb, "game_outbound_dropped_total", "counter", "Queued state updates dropped for a newer one");
+        sb.append("game_outbound_dropped_total ").append(OutboundQueue.getDroppedCount()).append('\n');
+        header(sb, "game_slow_disconnects_total", "counter", "Connections closed for falling too far behind");
+        sb.append("game_slow_disconnects_total ").append(OutboundQueue.getSlowDisconnectCount()).append('\n');
+
+        header(sb, "game_move_latency_seconds", "summary", "Inbound move until the replies are handed to the transport");
+        for (int slot = 0; slot < GAME_SLOTS; slot++) {
+            long[] counts = moveLatency[slot].snapshot();
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            String game = slot == 0 ? "none" : WireCodec.gameName(slot);
+            for (double quantile : QUANTILES) {
+                sb.append("game_move_latency_seconds{game=\"").append(game).append("\",quantile=\"").append(quantile)
+                  .append("\"} ").append(LatencyHistogram.percentileOf(counts, quantile) / 1e9).append('\n');
+            }
+            sb.append("game_move_latency_seconds_sum{game=\"").append(game).append("\"} ")
+              .append(moveLatencySum[slot].sum() / 1e9).append('\n');
+            sb.append("game_move_latency_seconds_count{game=\"").append(game).append("\"} ")
+              .append(total).append('\n');
+        }
+
+        SkillMatcher skill = matchmaker.getSkillMatcher();
+        header(sb, "game_rated_queue_players", "gauge", "Players waiting for a rated match");
+        sb.append("game_rated_queue_players ").append(skill.getWaitingCount()).append('\n');
+        header(sb, "game_rated_matches_total", "counter", "Rated matches made, by opponent");
+        sb.append("game_rated_matches_total{opponent=\"player\"} ").append(skill.getMatchCount()).append('\n');
+        sb.append("game_rated_matches_total{opponent=\"bot\"} ").append(skill.getBotMatchCount()).append('\n');
+        header(sb, "game_rated_queue_wait_seconds", "summary", "QUEUE until seated, per player");
+        quantiles(sb, "game_rated_queue_wait_seconds", skill.getWaitMillis(), 1e3);
+        header(sb, "game_rated_match_gap", "summary", "Rating difference between the two players of a rated match");
+        quantiles(sb, "game_rated_match_gap", skill.getRatingGap(), 1);
+        header(sb, "game_rated_pass_seconds", "summary", "Time for one matcher pass over the queues");
+        quantiles(sb, "game_rated_pass_seconds", skill.getPassNanos(), 1e9);
+
+        header(sb, "game_scheduler_pending", "gauge", "Timers waiting on the scheduler thread");
+        sb.append("game_scheduler_pending ").append(GameScheduler.getPendingCount()).append('\n');
+
+        // Platform threads only; virtual threads do not show up here, which is the point of comparing
+        header(sb, "game_jvm_threads", "gauge", "Live platform threads");
+        sb.append("game_jvm_threads ").append(ManagementFactory.getThreadMXBean().getThreadCount()).append('\n');
+        header(sb, "game_jvm_heap_used_bytes", "gauge", "Heap in use, garbage included");
+        sb.append("game_jvm_heap_used_bytes ").append(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed())
+          .append('\n');
+        header(sb, "game_jvm_heap_after_gc_bytes", "gauge", "Heap still in use after the last collection of each pool");
+        sb.append("game_jvm_heap_after_gc_bytes ").append(heapAfterGc()).append('\n');
+        return sb.toString();
+    }
+
+    private static long heapAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (afterGc != null) {
+                used += afterGc.getUsed();
+            }
+        }
+        return used;
+    }
+
+    // Quantiles and count only; these histograms keep no sum
+    private static void quantiles(StringBuilder sb, String name, LatencyHistogram histogram, double scale) {
+        long[] counts = histogram.snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        for (double quantile : QUANTILES) {
+            sb.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+              .append(LatencyHistogram.percentileOf(counts, quantile) / scale).append('\n');
+        }
+        sb.append(name).append("_count ").append(total).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Move latency across all games, merged bucket by bucket
+    private static long[] allLatencies() {
+        long[] merged = moveLatency[0].snapshot();
+        for (int slot = 1; slot < GAME_SLOTS; slot++) {
+            long[] counts = moveLatency[slot].snapshot();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += counts[i];
+            }
+        }
+        return merged;
+    }
+
+    // Read-only view for JMX consoles. A dynamic bean keeps the attribute list
+    // next to the Prometheus output instead of in a separate public interface.
+    private class MetricsBean implements DynamicMBean {
+        private final String[] names = {
+            "Connections", "SessionsWaiting", "SessionsChoosing", "SessionsPlaying",
+            "InboundMessages", "OutboundMessages", "Flushes", "InboundPerSecond", "OutboundPerSecond",
+            "OutboundQueuedBytes", "OutboundDropped", "SlowDisconnects",
+            "RatedQueuePlayers", "RatedMatches", "RatedWaitP50Millis", "RatedWaitP99Millis", "RatedGapP50", "RatedGapP90",
+            "MoveLatencyP50Micros", "MoveLatencyP99Micros", "MoveLatencyP999Micros"
+        };
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            switch (attribute) {
+                case "Connections": return (long) clients.size();
+                case "SessionsWaiting": return (long) countSessions().waiting;
+                case "SessionsChoosing": return (long) countSessions().choosing;
+                case "SessionsPlaying": return (long) Arrays.stream(countSessions().playing).sum();
+                case "InboundMessages": return inboundMessages.sum();
+                case "OutboundMessages": return ClientHandler.getMessagesSent();
+                case "Flushes": return ClientHandler.getFlushCount();
+                case "InboundPerSecond": return (long) inboundRate;
+                case "OutboundPerSecond": return (long) outboundRate;
+                case "OutboundQueuedBytes": return OutboundQueue.getTotalQueuedBytes();
+                case "OutboundDropped": return OutboundQueue.getDroppedCount();
+                case "SlowDisconnects": return OutboundQueue.getSlowDisconnectCount();
+                case "RatedQueuePlayers": return (long) matchmaker.getSkillMatcher().getWaitingCount();
+                case "RatedMatches": return matchmaker.getSkillMatcher().getMatchCount();
+                case "RatedWaitP50Millis": return matchmaker.getSkillMatcher().getWaitMillis().getPercentile(0.5);
+                case "RatedWaitP99Millis": return matchmaker.getSkillMatcher().getWaitMillis().getPercentile(0.99);
+                case "RatedGapP50": return matchmaker.getSkillMatcher().getRatingGap().getPercentile(0.5);
+                case "RatedGapP90": return matchmaker.getSkillMatcher().getRatingGap().getPercentile(0.9);
+                case "MoveLatencyP50Micros": return LatencyHistogram.percentileOf(allLatencies(), 0.5) / 1000;
+                case "MoveLatencyP99Micros": return LatencyHistogram.percentileOf(allLatencies(), 0.99) / 1000;
+                case "MoveLatencyP999Micros": return LatencyHistogram.percentileOf(allLatencies(), 0.999) / 1000;
+                default: throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Unknown names are left out, as the interface allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+            throw new MBeanException(new UnsupportedOperationException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.length];
+            for (int i = 0; i < names.length; i++) {
+                attributes[i] = new MBeanAttributeInfo(names[i], "long", names[i], true, false, false);
+            }
+            return new MBeanInfo(ServerMetrics.class.getName(), "Game server metrics",
+                                 attributes, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+// SkillMatcher.java
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Rated matchmaking. A player who sends QUEUE:<game> gives up their seat and
+// waits here for someone of similar rating who queued for the same game;
+// once paired, both are seated together and that game starts at once.
+//
+// Each game has a row of rating buckets, BUCKET_WIDTH points wide, each a
+// FIFO of tickets. Arrivals only land in a lock-free inbox; every TICK_MILLIS
+// the scheduler thread files them and makes one pass over the buckets.
+// Inside a bucket the oldest two are paired, since they are always within the
+// base window of each other, so after a pass at most one ticket is left per
+// bucket. The two end buckets are the exception: they also hold every rating
+// beyond them, so their tickets are not paired blindly but all go on to the
+// next step, sorted by rating. Leftovers are then paired with their neighbour
+// in rating order when the gap fits the window of whichever of the two has
+// waited longer. The window starts at one bucket and widens with every
+// second spent waiting, so nobody waits forever for a perfect opponent.
+// A pass is linear in the number of arrivals plus the bucket count, plus a
+// sort of the few tickets at the extremes.
+public class SkillMatcher {
+    private static final long TICK_MILLIS = 100;
+    private static final long STATS_SECONDS = 60;
+    private static final int BUCKET_WIDTH = 50;
+    // Ratings from 0 to 3200; anything outside sits in the end buckets
+    private static final int BUCKETS = 64;
+    private static final int GAME_SLOTS = 5;
+    private static final double BASE_WINDOW = BUCKET_WIDTH;
+    private static final double WIDEN_PER_SECOND = 25;
+    private static final double MAX_WINDOW = 600;
+    private static final Comparator<Ticket> BY_RATING = Comparator.comparingDouble(ticket -> ticket.rating);
+
+    private final Matchmaker matchmaker;
+    private final Queue<Ticket> arrivals = new ConcurrentLinkedQueue<>();
+    // The live ticket of every queued player; QUEUE again or SPECTATE replaces or cancels it
+    private final Map<ClientHandler, Ticket> tickets = new ConcurrentHashMap<>();
+
+    // Scheduler thread only
+    private final ArrayDeque<Ticket>[][] buckets = newBuckets();
+    private final List<Ticket> leftovers = new ArrayList<>();
+    private final List<Ticket> extremes = new ArrayList<>();
+    private final List<Ticket> paired = new ArrayList<>();
+    private volatile int waiting = 0;
+
+    // Milliseconds from QUEUE to a seat, the rating gap of each human pair, and each pass's own time
+    private final LatencyHistogram waitMillis = new LatencyHistogram();
+    private final LatencyHistogram ratingGap = new LatencyHistogram();
+    private final LatencyHistogram passNanos = new LatencyHistogram();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder botMatches = new LongAdder();
+    private long lastMatches = 0;
+
+    public SkillMatcher(Matchmaker matchmaker) {
+        this.matchmaker = matchmaker;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Ticket>[][] newBuckets() {
+        ArrayDeque<Ticket>[][] rows = (ArrayDeque<Ticket>[][]) new ArrayDeque<?>[GAME_SLOTS][BUCKETS];
+        for (ArrayDeque<Ticket>[] row : rows) {
+            for (int i = 0; i < BUCKETS; i++) {
+                row[i] = new ArrayDeque<>();
+            }
+        }
+        return rows;
+    }
+
+    public void start() {
+        GameScheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        GameScheduler.scheduleAtFixedRate(this::logStats, STATS_SECONDS, STATS_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // The ticket is filed at once, so a cancel that beats the rating lookup
+    // still finds it; the rating comes from the leaderboard's own thread when
+    // ratings are kept, and only then does the ticket join the next pass
+    public void enqueue(ClientHandler client, int gameId) {
+        Ticket ticket = new Ticket(client, gameId, Leaderboard.INITIAL_RATING, System.nanoTime());
+        register(ticket);
+        Leaderboard leaderboard = matchmaker.getLeaderboard();
+        if (leaderboard == null) {
+            rated(ticket, Leaderboard.INITIAL_RATING);
+        } else {
+            leaderboard.lookupRating(client.getPlayerName(), gameId, rating -> rated(ticket, rating));
+        }
+    }
+
+    private void rated(Ticket ticket, double rating) {
+        ticket.rating = rating;
+        if (!isLive(ticket)) {
+            return; // Left the queue or took a seat while the rating was looked up
+        }
+        arrivals.add(ticket);
+        ticket.client.sendMessage("WAITING:Looking for a " + WireCodec.gameName(ticket.gameId)
+                                  + " opponent rated near " + Math.round(rating) + "...");
+    }
+
+    // A ticket whose rating is already known
+    void arrive(Ticket ticket) {
+        register(ticket);
+        arrivals.add(ticket);
+    }
+
+    private void register(Ticket ticket) {
+        Ticket previous = tickets.put(ticket.client, ticket);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+    }
+
+    // The player took a seat some other way
+    public void cancel(ClientHandler client) {
+        Ticket ticket = tickets.remove(client);
+        if (ticket != null) {
+            ticket.cancelled = true;
+        }
+    }
+
+    private void tick() {
+        try {
+            List<Ticket> found = match(System.nanoTime());
+            for (int i = 0; i < found.size(); i += 2) {
+                Ticket first = found.get(i);
+                Ticket second = found.get(i + 1);
+                if (second == null) {
+                    matchmaker.startBotMatch(first.client, first.gameId);
+                } else {
+                    matchmaker.startMatch(first.client, second.client, first.gameId);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.out.println("❌ Matcher error: " + e);
+        } finally {
+            paired.clear();
+        }
+    }
+
+    // One pass: files arrivals, then returns the pairs found, first and
+    // second after each other with a bot opponent as null. The list is
+    // reused by the next pass.
+    List<Ticket> match(long now) {
+        long start = System.nanoTime();
+        paired.clear();
+        Ticket arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            if (isLive(arrival)) {
+                buckets[arrival.gameId][bucketOf(arrival.rating)].addLast(arrival);
+            }
+        }
+
+        long botDelayNanos = TimeUnit.MILLISECONDS.toNanos(matchmaker.getBotDelayMillis());
+        int left = 0;
+        for (int game = 1; game < GAME_SLOTS; game++) {
+            ArrayDeque<Ticket>[] row = buckets[game];
+            leftovers.clear();
+            for (int b = 0; b < BUCKETS; b++) {
+                ArrayDeque<Ticket> bucket = row[b];
+                if (b == 0 || b == BUCKETS - 1) {
+                    extremes.clear();
+                    Ticket ticket;
+                    while ((ticket = bucket.pollFirst()) != null) {
+                        if (isLive(ticket)) {
+                            extremes.add(ticket);
+                        }
+                    }
+                    extremes.sort(BY_RATING);
+                    leftovers.addAll(extremes);
+                    continue;
+                }
+                Ticket oldest = null;
+                Ticket ticket;
+                while ((ticket = bucket.pollFirst()) != null) {
+                    if (!isLive(ticket)) {
+                        continue;
+                    }
+                    if (oldest == null) {
+                        oldest = ticket;
+                    } else {
+                        pair(oldest, ticket, now);
+                        oldest = null;
+                    }
+                }
+                if (oldest != null) {
+                    leftovers.add(oldest);
+                }
+            }
+
+            // Leftovers are in rating order; inside an inner bucket each is alone and the oldest there
+            for (int i = 0; i < leftovers.size(); i++) {
+                Ticket ticket = leftovers.get(i);
+                Ticket next = i + 1 < leftovers.size() ? leftovers.get(i + 1) : null;
+                if (next != null && Math.abs(ticket.rating - next.rating)
+                                    <= window(Math.min(ticket.queuedAt, next.queuedAt), now)) {
+                    pair(ticket, next, now);
+                    i++;
+                } else if (botDelayNanos > 0 && now - ticket.queuedAt >= botDelayNanos) {
+                    pair(ticket, null, now);
+                } else {
+                    row[bucketOf(ticket.rating)].addLast(ticket);
+                    left++;
+                }
+            }
+            leftovers.clear();
+        }
+        waiting = left;
+        passNanos.record(System.nanoTime() - start);
+        return paired;
+    }
+
+    private boolean isLive(Ticket ticket) {
+        if (ticket.cancelled || ticket.client.isDisconnected()) {
+            tickets.remove(ticket.client, ticket);
+            return false;
+        }
+        return true;
+    }
+
+    private void pair(Ticket first, Ticket second, long now) {
+        tickets.remove(first.client, first);
+        waitMillis.record(TimeUnit.NANOSECONDS.toMillis(now - first.queuedAt));
+        if (second == null) {
+            botMatches.increment();
+        } else {
+            tickets.remove(second.client, second);
+            waitMillis.record(TimeUnit.NANOSECONDS.toMillis(now - second.queuedAt));
+            ratingGap.record(Math.round(Math.abs(first.rating - second.rating)));
+            matches.increment();
+        }
+        paired.add(first);
+        paired.add(second);
+    }
+
+    private static int bucketOf(double rating) {
+        return Math.max(0, Math.min(BUCKETS - 1, (int) (rating / BUCKET_WIDTH)));
+    }
+
+    private static double window(long queuedAt, long now) {
+        return Math.min(MAX_WINDOW, BASE_WINDOW + WIDEN_PER_SECOND * (now - queuedAt) / 1e9);
+    }
+
+    private void logStats() {
+        long total = matches.sum();
+        if (total == lastMatches) {
+            return;
+        }
+        System.out.printf("🎯 %d rated matches (%d with bots), wait p50 %.1fs p90 %.1fs p99 %.1fs, rating gap p50 %d p90 %d, pass p99 %d µs, %d waiting%n",
+                          total, botMatches.sum(),
+                          waitMillis.getPercentile(0.5) / 1000.0, waitMillis.getPercentile(0.9) / 1000.0,
+                          waitMillis.getPercentile(0.99) / 1000.0,
+                          ratingGap.getPercentile(0.5), ratingGap.getPercentile(0.9),
+                          TimeUnit.NANOSECONDS.toMicros(passNanos.getPercentile(0.99)), waiting);
+        lastMatches = total;
+    }
+
+    // ---- Read by ServerMetrics ----
+
+    int getWaitingCount() {
+        return waiting + arrivals.size();
+    }
+
+    long getMatchCount() {
+        return matches.sum();
+    }
+
+    long getBotMatchCount() {
+        return botMatches.sum();
+    }
+
+    LatencyHistogram getWaitMillis() {
+        return waitMillis;
+    }
+
+    LatencyHistogram getRatingGap() {
+        return ratingGap;
+    }
+
+    LatencyHistogram getPassNanos() {
+        return passNanos;
+    }
+
+    static final class Ticket {
+        final ClientHandler client;
+        final int gameId;
+        // Written once the leaderboard answers, before the ticket goes into arrivals
+        double rating;
+        final long queuedAt;
+        volatile boolean cancelled = false;
+
+        Ticket(ClientHandler client, int gameId, double rating, long queuedAt) {
+            this.client = client;
+            this.gameId = gameId;
+            this.rating = rating;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
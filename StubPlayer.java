@@ -0,0 +1,29 @@
+// StubPlayer.java
+// Player with no socket for the benchmarks and ServerChecks; messages are
+// encoded as usual and then dropped
+class StubPlayer extends ClientHandler {
+    private final String name;
+    private final byte[][] batch = new byte[16][];
+    private long bytesWritten;
+
+    StubPlayer(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getPlayerName() {
+        return name;
+    }
+
+    // Empties the queue straight away, as a socket that keeps up would
+    @Override
+    protected void flushOutput() {
+        int count;
+        while ((count = outbound.drainTo(batch)) > 0) {
+            for (int i = 0; i < count; i++) {
+                bytesWritten += batch[i].length;
+                batch[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+// TTTBoard.java
+import java.util.*;
+import java.util.concurrent.*;
+
+// Bitboard for Tic-Tac-Toe and its bigger k-in-a-row relatives such as
+// 15x15 Gomoku. Each player's stones are a bitset over the cells. A win is
+// only looked for around the stone just placed: boards that fit in one long
+// test that stone's precomputed winning lines, larger ones count outwards
+// along the four directions, so a move costs O(k) whatever the board size.
+public class TTTBoard {
+    public static final char EMPTY = '-';
+    public static final char[] SYMBOLS = {'X', 'O'};
+
+    // Winning lines through each cell for single-word boards, shared per shape
+    private static final Map<Integer, long[][]> LINE_CACHE = new ConcurrentHashMap<>();
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    private final int size;
+    private final int winLength;
+    private final int cells;
+    private final long[][] stones;
+    private final long[][] linesThroughCell;
+
+    public TTTBoard(int size, int winLength) {
+        if (size < 1 || winLength < 1 || winLength > size) {
+            throw new IllegalArgumentException("Bad board " + size + "x" + size + " / " + winLength);
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.cells = size * size;
+        int words = (cells + 63) / 64;
+        this.stones = new long[2][words];
+        this.linesThroughCell = cells <= 64
+            ? LINE_CACHE.computeIfAbsent(size * 1000 + winLength, key -> buildLines(size, winLength))
+            : null;
+    }
+
+    public TTTBoard copy() {
+        TTTBoard copy = new TTTBoard(size, winLength);
+        System.arraycopy(stones[0], 0, copy.stones[0], 0, stones[0].length);
+        System.arraycopy(stones[1], 0, copy.stones[1], 0, stones[1].length);
+        return copy;
+    }
+
+    // Board shape for a game type, or null if it is not a board game
+    public static TTTBoard forGame(String gameType) {
+        switch (gameType) {
+            case "TTT": return new TTTBoard(3, 3);
+            case "GOMOKU": return new TTTBoard(15, 5);
+            default: return null;
+        }
+    }
+
+    private static long[][] buildLines(int size, int winLength) {
+        List<List<Long>> perCell = new ArrayList<>();
+        for (int i = 0; i < size * size; i++) {
+            perCell.add(new ArrayList<>());
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                for (int[] d : DIRECTIONS) {
+                    int endRow = row + d[0] * (winLength - 1);
+                    int endCol = col + d[1] * (winLength - 1);
+                    if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) continue;
+
+                    long line = 0;
+                    for (int step = 0; step < winLength; step++) {
+                        line |= 1L << ((row + d[0] * step) * size + col + d[1] * step);
+                    }
+                    for (int step = 0; step < winLength; step++) {
+                        perCell.get((row + d[0] * step) * size + col + d[1] * step).add(line);
+                    }
+                }
+            }
+        }
+        long[][] lines = new long[perCell.size()][];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = perCell.get(i).stream().mapToLong(Long::longValue).toArray();
+        }
+        return lines;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+
+    public boolean isEmpty(int position) {
+        return !isSet(stones[0], position) && !isSet(stones[1], position);
+    }
+
+    // 0 or 1 for the player holding the cell, -1 when empty
+    public int ownerOf(int position) {
+        if (isSet(stones[0], position)) return 0;
+        if (isSet(stones[1], position)) return 1;
+        return -1;
+    }
+
+    public void place(int position, int player) {
+        stones[player][position >>> 6] |= 1L << position;
+    }
+
+    public void remove(int position, int player) {
+        stones[player][position >>> 6] &= ~(1L << position);
+    }
+
+    // Only has to be asked right after player placed a stone on position
+    public boolean isWinningMove(int position, int player) {
+        if (linesThroughCell != null) {
+            long mine = stones[player][0];
+            for (long line : linesThroughCell[position]) {
+                if ((mine & line) == line) return true;
+            }
+            return false;
+        }
+
+        long[] mine = stones[player];
+        int row = position / size;
+        int col = position % size;
+        for (int[] d : DIRECTIONS) {
+            int run = 1 + countFrom(mine, row, col, d[0], d[1]) + countFrom(mine, row, col, -d[0], -d[1]);
+            if (run >= winLength) return true;
+        }
+        return false;
+    }
+
+    private int countFrom(long[] mine, int row, int col, int dRow, int dCol) {
+        int count = 0;
+        for (int r = row + dRow, c = col + dCol;
+             r >= 0 && r < size && c >= 0 && c < size && count < winLength;
+             r += dRow, c += dCol) {
+            if (!isSet(mine, r * size + c)) break;
+            count++;
+        }
+        return count;
+    }
+
+    public int getStoneCount() {
+        int count = 0;
+        for (int i = 0; i < stones[0].length; i++) {
+            count += Long.bitCount(stones[0][i] | stones[1][i]);
+        }
+        return count;
+    }
+
+    public boolean isFull() {
+        return getStoneCount() == cells;
+    }
+
+    public void clear() {
+        Arrays.fill(stones[0], 0);
+        Arrays.fill(stones[1], 0);
+    }
+
+    public long[] getStones(int player) {
+        return stones[player];
+    }
+
+    // Cells as X / O / - in row-major order, the BOARD: message payload
+    public void appendTo(StringBuilder out) {
+        for (int i = 0; i < cells; i++) {
+            int owner = ownerOf(i);
+            out.append(owner < 0 ? EMPTY : SYMBOLS[owner]);
+        }
+    }
+
+    private static boolean isSet(long[] bits, int position) {
+        return (bits[position >>> 6] & (1L << position)) != 0;
+    }
+}
@@ -0,0 +1,337 @@
+// WireCodec.java
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Compact binary framing a client can ask for right after sending its name,
+// as an alternative to newline-delimited text. Each frame is a 2 byte
+// big-endian length followed by that many bytes: an opcode, then the payload.
+// Scores, dice, boards and moves are packed into fixed-width fields; status
+// text stays UTF-8. Anything without its own opcode travels as RAW_TEXT so
+// new text messages never break binary clients.
+public class WireCodec {
+    public static final String HANDSHAKE = "PROTO:BIN";
+    public static final String HANDSHAKE_OK = "PROTO_OK:BIN";
+    public static final int MAX_FRAME_LENGTH = 0xFFFF;
+
+    // Server -> client, numbered to index SERVER_PREFIXES
+    static final byte WAITING = 1;
+    static final byte GAME_READY = 2;
+    static final byte GAME_START = 3;
+    static final byte WINNER = 4;
+    static final byte DRAW = 5;
+    static final byte BOARD = 6;
+    static final byte TURN = 7;
+    static final byte WAIT = 8;
+    static final byte GAME_OVER = 9;
+    static final byte ERROR = 10;
+    static final byte SCORE = 11;
+    static final byte DICE_ROLL = 12;
+    static final byte DICE_RESULT = 13;
+    static final byte SESSION_END = 14;
+    static final byte OPPONENT_LEFT = 15;
+    static final byte POPUP = 16;
+    static final byte RESUME_TOKEN = 17;
+    static final byte RESUMED = 18;
+    static final byte RATING = 19;
+    static final byte LEADERBOARD = 20;
+
+    // Between the ordinary server lines packed into one RESUMED message
+    public static final char RESUME_SEPARATOR = '\u001E';
+    // Between the entries of a LEADERBOARD message
+    public static final char ENTRY_SEPARATOR = '\u001F';
+
+    // Client -> server
+    static final byte CHOOSE_GAME = 0x41;
+    static final byte RPS_CHOICE = 0x42;
+    static final byte PLACE = 0x43;
+    static final byte ROLL = 0x44;
+    static final byte REPLY = 0x45;
+    static final byte RESULT_ACK = 0x46;
+
+    static final byte RAW_TEXT = 0x7F;
+
+    private static final String[] SERVER_PREFIXES = {
+        null, "WAITING", "GAME_READY", "GAME_START", "WINNER", "DRAW", "BOARD", "TURN", "WAIT",
+        "GAME_OVER", "ERROR", "SCORE", "DICE_ROLL", "DICE_RESULT", "SESSION_END", "OPPONENT_LEFT", "POPUP",
+        "RESUME_TOKEN", "RESUMED", "RATING", "LEADERBOARD"
+    };
+
+    // Index is the game id sent on the wire
+    private static final String[] GAME_NAMES = {null, "RPS", "TTT", "DICE", "GOMOKU"};
+    private static final String[] CHOOSE_GAME_LINES = new String[GAME_NAMES.length];
+    private static final String[] POSITIONS = new String[256];
+    private static final char[] BOARD_CELLS = {'-', 'X', 'O'};
+
+    static {
+        for (int i = 1; i < GAME_NAMES.length; i++) {
+            CHOOSE_GAME_LINES[i] = "CHOOSE_GAME:" + GAME_NAMES[i];
+        }
+        for (int i = 0; i < POSITIONS.length; i++) {
+            POSITIONS[i] = String.valueOf(i);
+        }
+    }
+
+    private WireCodec() {
+    }
+
+    public static int gameId(String gameName) {
+        for (int i = 1; i < GAME_NAMES.length; i++) {
+            if (GAME_NAMES[i].equalsIgnoreCase(gameName)) return i;
+        }
+        return 0;
+    }
+
+    public static String gameName(int gameId) {
+        return gameId > 0 && gameId < GAME_NAMES.length ? GAME_NAMES[gameId] : null;
+    }
+
+    // ---- Server -> client ----
+
+    public static byte[] encodeServerMessage(String message) {
+        int colon = message.indexOf(':');
+        byte opcode = colon < 0 ? 0 : serverOpcode(message, colon);
+        int start = colon + 1;
+
+        switch (opcode) {
+            case GAME_START: {
+                int next = message.indexOf(':', start);
+                int gameId = next < 0 ? 0 : gameId(message.substring(start, next));
+                if (gameId == 0) break;
+                byte[] text = utf8(message, next + 1);
+                byte[] frame = newFrame(opcode, 1 + text.length);
+                frame[3] = (byte) gameId;
+                System.arraycopy(text, 0, frame, 4, text.length);
+                return frame;
+            }
+            case BOARD: {
+                int cells = message.length() - start;
+                byte[] frame = newFrame(opcode, 2 + (cells + 3) / 4);
+                putShort(frame, 3, cells);
+                for (int i = 0; i < cells; i++) {
+                    char c = message.charAt(start + i);
+                    int value = c == 'X' ? 1 : c == 'O' ? 2 : 0;
+                    frame[5 + i / 4] |= (byte) (value << ((i % 4) * 2));
+                }
+                return frame;
+            }
+            case SCORE: {
+                int next = message.indexOf(':', start);
+                if (next < 0) break;
+                byte[] frame = newFrame(opcode, 8);
+                putInt(frame, 3, Integer.parseInt(message, start, next, 10));
+                putInt(frame, 7, Integer.parseInt(message, next + 1, message.length(), 10));
+                return frame;
+            }
+            case DICE_ROLL: {
+                int next = message.indexOf(':', start);
+                if (next < 0) break;
+                byte[] frame = newFrame(opcode, 2);
+                frame[3] = (byte) Integer.parseInt(message, start, next, 10);
+                frame[4] = (byte) Integer.parseInt(message, next + 1, message.length(), 10);
+                return frame;
+            }
+            case 0:
+                break;
+            default:
+                return textFrame(opcode, utf8(message, start));
+        }
+        return textFrame(RAW_TEXT, utf8(message, 0));
+    }
+
+    // Turns a server frame body (opcode onwards) back into its text line
+    public static String decodeServerMessage(byte[] body, int offset, int length) {
+        byte opcode = body[offset];
+        int payload = offset + 1;
+        int payloadLength = length - 1;
+
+        switch (opcode) {
+            case GAME_START:
+                return "GAME_START:" + gameName(body[payload]) + ":" + text(body, payload + 1, payloadLength - 1);
+            case BOARD: {
+                int cells = getShort(body, payload);
+                StringBuilder board = new StringBuilder(6 + cells).append("BOARD:");
+                for (int i = 0; i < cells; i++) {
+                    board.append(BOARD_CELLS[(body[payload + 2 + i / 4] >> ((i % 4) * 2)) & 3]);
+                }
+                return board.toString();
+            }
+            case SCORE:
+                return "SCORE:" + getInt(body, payload) + ":" + getInt(body, payload + 4);
+            case DICE_ROLL:
+                return "DICE_ROLL:" + body[payload] + ":" + body[payload + 1];
+            case RAW_TEXT:
+                return text(body, payload, payloadLength);
+            default:
+                if (opcode > 0 && opcode < SERVER_PREFIXES.length) {
+                    return SERVER_PREFIXES[opcode] + ":" + text(body, payload, payloadLength);
+                }
+                throw new IllegalArgumentException("Unknown server opcode " + opcode);
+        }
+    }
+
+    // 0 when the text before the colon is not a known server message type
+    static byte serverOpcode(String message, int colon) {
+        for (int i = 1; i < SERVER_PREFIXES.length; i++) {
+            String prefix = SERVER_PREFIXES[i];
+            if (prefix.length() == colon && message.startsWith(prefix)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    // ---- Client -> server ----
+
+    public static byte[] encodeClientMessage(String line) {
+        if (line.startsWith("CHOOSE_GAME:")) {
+            int gameId = gameId(line.substring("CHOOSE_GAME:".length()));
+            if (gameId != 0) {
+                byte[] frame = newFrame(CHOOSE_GAME, 1);
+                frame[3] = (byte) gameId;
+                return frame;
+            }
+        } else if (line.length() == 1 && "RPSrps".indexOf(line.charAt(0)) >= 0) {
+            byte[] frame = newFrame(RPS_CHOICE, 1);
+            frame[3] = (byte) Character.toUpperCase(line.charAt(0));
+            return frame;
+        } else if (isPosition(line)) {
+            byte[] frame = newFrame(PLACE, 2);
+            putShort(frame, 3, Integer.parseInt(line));
+            return frame;
+        } else if (line.equalsIgnoreCase("ROLL")) {
+            return newFrame(ROLL, 0);
+        } else if (line.equalsIgnoreCase("YES") || line.equalsIgnoreCase("NO")) {
+            byte[] frame = newFrame(REPLY, 1);
+            frame[3] = (byte) (line.equalsIgnoreCase("YES") ? 1 : 0);
+            return frame;
+        } else if (line.equalsIgnoreCase("GAME_RESULT_ACK")) {
+            return newFrame(RESULT_ACK, 0);
+        }
+        return textFrame(RAW_TEXT, utf8(line, 0));
+    }
+
+    // Decodes to the same strings a text client would send, reusing constants
+    // for every fixed-shape move so the hot path allocates nothing
+    public static String decodeClientMessage(byte[] body, int offset, int length) {
+        byte opcode = body[offset];
+        int payload = offset + 1;
+
+        switch (opcode) {
+            case CHOOSE_GAME: {
+                requirePayload(length, 1);
+                int gameId = body[payload];
+                if (gameId <= 0 || gameId >= GAME_NAMES.length) {
+                    throw new IllegalArgumentException("Unknown game id " + gameId);
+                }
+                return CHOOSE_GAME_LINES[gameId];
+            }
+            case RPS_CHOICE:
+                requirePayload(length, 1);
+                switch (body[payload]) {
+                    case 'R': return "R";
+                    case 'P': return "P";
+                    case 'S': return "S";
+                    default: throw new IllegalArgumentException("Unknown RPS choice");
+                }
+            case PLACE: {
+                requirePayload(length, 2);
+                int position = getShort(body, payload);
+                return position < POSITIONS.length ? POSITIONS[position] : String.valueOf(position);
+            }
+            case ROLL:
+                return "ROLL";
+            case REPLY:
+                requirePayload(length, 1);
+                return body[payload] != 0 ? "YES" : "NO";
+            case RESULT_ACK:
+                return "GAME_RESULT_ACK";
+            case RAW_TEXT:
+                return text(body, payload, length - 1);
+            default:
+                throw new IllegalArgumentException("Unknown client opcode " + opcode);
+        }
+    }
+
+    // The frame's length counts the opcode byte, so anything shorter than
+    // the opcode's payload would read the next frame's bytes, or past the end
+    private static void requirePayload(int length, int bytes) {
+        if (length - 1 < bytes) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+    }
+
+    private static boolean isPosition(String line) {
+        if (line.isEmpty() || line.length() > 5) return false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') return false;
+        }
+        return Integer.parseInt(line) <= MAX_FRAME_LENGTH;
+    }
+
+    // ---- Stream helpers ----
+
+    // Reads one frame body (opcode onwards); null on a clean end of stream
+    public static byte[] readFrame(InputStream in) throws IOException {
+        int high = in.read();
+        if (high < 0) return null;
+        int low = in.read();
+        if (low < 0) throw new EOFException("Truncated frame header");
+
+        int length = (high << 8) | low;
+        if (length == 0) throw new IOException("Empty frame");
+        byte[] body = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(body, read, length - read);
+            if (n < 0) throw new EOFException("Truncated frame");
+            read += n;
+        }
+        return body;
+    }
+
+    private static byte[] newFrame(byte opcode, int payloadLength) {
+        int length = 1 + payloadLength;
+        if (length > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Frame too large: " + length);
+        }
+        byte[] frame = new byte[2 + length];
+        putShort(frame, 0, length);
+        frame[2] = opcode;
+        return frame;
+    }
+
+    private static byte[] textFrame(byte opcode, byte[] text) {
+        byte[] frame = newFrame(opcode, text.length);
+        System.arraycopy(text, 0, frame, 3, text.length);
+        return frame;
+    }
+
+    private static byte[] utf8(String message, int start) {
+        return message.substring(start).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+            | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+}
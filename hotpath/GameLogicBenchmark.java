@@ -0,0 +1,30 @@
+// GameLogicBenchmark.java
+package hotpath;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// GameLogic.processMove for every game: an RPS round, a won TTT and GOMOKU
+// game and a DICE game, each followed by both players asking for a rematch
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLogicBenchmark {
+    @Param({"RPS", "TTT", "GOMOKU", "DICE"})
+    public String game;
+
+    private Runnable processMove;
+
+    @Setup
+    public void setup() {
+        processMove = Cases.load("processMove " + game);
+    }
+
+    @Benchmark
+    public void processMove() {
+        processMove.run();
+    }
+}
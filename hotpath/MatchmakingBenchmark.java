@@ -0,0 +1,30 @@
+// MatchmakingBenchmark.java
+package hotpath;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Two joins that open and then fill a session, with the given number of
+// full sessions already open; both players leave again after each op
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchmakingBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int sessions;
+
+    private Runnable assignPair;
+
+    @Setup
+    public void setup() {
+        assignPair = Cases.load("assign pair @" + sessions + " sessions");
+    }
+
+    @Benchmark
+    public void assignPair() {
+        assignPair.run();
+    }
+}
@@ -0,0 +1,34 @@
+// MessageBenchmark.java
+package hotpath;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Both ends of the text protocol: GameSession.processMessage dispatching a
+// player's lines, and the client parsing the server's lines
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+    private Runnable dispatch;
+    private Runnable clientParse;
+
+    @Setup
+    public void setup() {
+        dispatch = Cases.load("processMessage dispatch");
+        clientParse = Cases.load("client parse");
+    }
+
+    @Benchmark
+    public void processMessage() {
+        dispatch.run();
+    }
+
+    @Benchmark
+    public void clientParse() {
+        clientParse.run();
+    }
+}
@@ -0,0 +1,29 @@
+// WinCheckBenchmark.java
+package hotpath;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The board win check on its own, for the move that completes a line
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinCheckBenchmark {
+    @Param({"TTT", "GOMOKU"})
+    public String board;
+
+    private Runnable winCheck;
+
+    @Setup
+    public void setup() {
+        winCheck = Cases.load("isWinningMove " + board);
+    }
+
+    @Benchmark
+    public void isWinningMove() {
+        winCheck.run();
+    }
+}